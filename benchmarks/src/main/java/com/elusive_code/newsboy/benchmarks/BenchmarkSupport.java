@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.benchmarks;
+
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Events, listeners and helpers shared by benchmarks
+ */
+public class BenchmarkSupport {
+
+    private BenchmarkSupport() {}
+
+    /**
+     * Keeps benchmarks from measuring logging
+     */
+    public static void silenceLogging() {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+    }
+
+    /**
+     * Waits until all notifications complete
+     * @param notifications notifications to wait for
+     * @return number of notifications
+     * @throws Exception if notification failed
+     */
+    public static int await(List<NotificationFuture> notifications) throws Exception {
+        for (NotificationFuture f : notifications) {
+            f.get();
+        }
+        return notifications.size();
+    }
+
+    public static class Event {
+        private final long value;
+
+        public Event(long value) {
+            this.value = value;
+        }
+
+        public long getValue() {
+            return value;
+        }
+    }
+
+    public static class Listener {
+
+        private volatile long last;
+
+        @Subscribe
+        public void onEvent(Event event) {
+            last = event.getValue();
+        }
+    }
+
+    public interface Root {}
+
+    public interface Level1 extends Root {}
+
+    public interface Level2 extends Level1 {}
+
+    public interface Level3 extends Level2 {}
+
+    public static class DeepEvent0 extends Event implements Level3 {
+        public DeepEvent0(long value) {
+            super(value);
+        }
+    }
+
+    public static class DeepEvent1 extends DeepEvent0 implements Comparable<DeepEvent1> {
+        public DeepEvent1(long value) {
+            super(value);
+        }
+
+        @Override
+        public int compareTo(DeepEvent1 o) {
+            return Long.compare(getValue(), o.getValue());
+        }
+    }
+
+    public static class DeepEvent2 extends DeepEvent1 implements Runnable {
+        public DeepEvent2(long value) {
+            super(value);
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    public static class DeepEvent3 extends DeepEvent2 implements java.io.Serializable {
+        public DeepEvent3(long value) {
+            super(value);
+        }
+    }
+
+    public static class DeepEvent extends DeepEvent3 implements Cloneable {
+        public DeepEvent(long value) {
+            super(value);
+        }
+    }
+
+    /**
+     * Event of the same interfaces as deep event, but not an {@link Event}
+     */
+    public static class RootEvent implements Level3 {
+    }
+
+    public static class RootListener {
+
+        private volatile Object last;
+
+        @Subscribe
+        public void onEvent(Root event) {
+            last = event;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.benchmarks;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Publishing while other threads subscribe and unsubscribe listeners of the same event type.</p>
+ * <p>Group "churn" publishes events of the changed type, so every publisher that follows a change
+ * resolves its handlers again. Group "churnOther" publishes events of unrelated type that no change affects,
+ * so it shows how much subscribing slows down publishers of other types.</p>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChurnBenchmark {
+
+    private static final int LISTENERS = 10;
+
+    private AsyncEventService eventService;
+
+    private BenchmarkSupport.Listener[] subscribed = new BenchmarkSupport.Listener[LISTENERS];
+
+    private BenchmarkSupport.Event event = new BenchmarkSupport.Event(1);
+
+    private BenchmarkSupport.RootListener rootListener = new BenchmarkSupport.RootListener();
+
+    private BenchmarkSupport.Root otherEvent = new BenchmarkSupport.RootEvent();
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.silenceLogging();
+        eventService = new AsyncEventService();
+        for (int i = 0; i < LISTENERS; i++) {
+            subscribed[i] = new BenchmarkSupport.Listener();
+            eventService.subscribe(subscribed[i]);
+        }
+        eventService.subscribe(rootListener);
+    }
+
+    @TearDown
+    public void tearDown() {
+        eventService.shutdown();
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(3)
+    public int publish() throws Exception {
+        return BenchmarkSupport.await(eventService.publish(event));
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void subscribeUnsubscribe() {
+        BenchmarkSupport.Listener listener = new BenchmarkSupport.Listener();
+        eventService.subscribe(listener);
+        eventService.unsubscribe(listener);
+    }
+
+    @Benchmark
+    @Group("churnOther")
+    @GroupThreads(3)
+    public int publishOther() throws Exception {
+        return BenchmarkSupport.await(eventService.publish(otherEvent));
+    }
+
+    @Benchmark
+    @Group("churnOther")
+    @GroupThreads(1)
+    public void subscribeUnsubscribeOther() {
+        subscribeUnsubscribe();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.benchmarks;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Cost of dispatching events with flat and deep class hierarchies.</p>
+ * <p>Deep event has five superclasses and eight interfaces, listeners are subscribed to
+ * the root interface and to the base event class.
+ * Concurrent variant publishes from several threads, which resolve handlers of the same class at once.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyBenchmark {
+
+    @Param({"flat", "deep"})
+    public String hierarchy;
+
+    private AsyncEventService eventService;
+
+    private BenchmarkSupport.Listener listener = new BenchmarkSupport.Listener();
+
+    private BenchmarkSupport.RootListener rootListener = new BenchmarkSupport.RootListener();
+
+    private BenchmarkSupport.Event event;
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.silenceLogging();
+        eventService = new AsyncEventService();
+        eventService.subscribe(listener);
+        eventService.subscribe(rootListener);
+        event = "deep".equals(hierarchy) ? new BenchmarkSupport.DeepEvent(1) : new BenchmarkSupport.Event(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        eventService.shutdown();
+    }
+
+    @Benchmark
+    public int publish() throws Exception {
+        return BenchmarkSupport.await(eventService.publish(event));
+    }
+
+    @Benchmark
+    @Threads(PublishBenchmark.PUBLISHERS)
+    public int publishConcurrent() throws Exception {
+        return BenchmarkSupport.await(eventService.publish(event));
+    }
+}
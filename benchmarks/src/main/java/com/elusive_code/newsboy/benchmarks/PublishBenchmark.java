@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.benchmarks;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Throughput and latency of publishing to 1, 10 and 1000 listeners.</p>
+ * <p>Every invocation publishes one event and waits until all listeners are notified.
+ * Concurrent variants do the same from {@link #PUBLISHERS} threads, which contend on publishing
+ * and share the notification pool.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PublishBenchmark {
+
+    static final int PUBLISHERS = 4;
+
+    @Param({"1", "10", "1000"})
+    public int listeners;
+
+    private AsyncEventService eventService;
+
+    /**
+     * Keeps strong references to weakly subscribed listeners
+     */
+    private BenchmarkSupport.Listener[] subscribed;
+
+    private BenchmarkSupport.Event event = new BenchmarkSupport.Event(1);
+
+    @Setup
+    public void setUp() {
+        BenchmarkSupport.silenceLogging();
+        eventService = new AsyncEventService();
+        subscribed = new BenchmarkSupport.Listener[listeners];
+        for (int i = 0; i < listeners; i++) {
+            subscribed[i] = new BenchmarkSupport.Listener();
+            eventService.subscribe(subscribed[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (BenchmarkSupport.Listener listener : subscribed) {
+            eventService.unsubscribe(listener);
+        }
+        eventService.shutdown();
+    }
+
+    @Benchmark
+    public int publish() throws Exception {
+        return BenchmarkSupport.await(eventService.publish(event));
+    }
+
+    @Benchmark
+    public int publishOrdered() throws Exception {
+        return BenchmarkSupport.await(eventService.publishOrdered(event));
+    }
+
+    @Benchmark
+    @Threads(PUBLISHERS)
+    public int publishConcurrent() throws Exception {
+        return BenchmarkSupport.await(eventService.publish(event));
+    }
+
+    @Benchmark
+    @Threads(PUBLISHERS)
+    public int publishOrderedConcurrent() throws Exception {
+        return BenchmarkSupport.await(eventService.publishOrdered(event));
+    }
+}
@@ -17,10 +17,22 @@
 package com.elusive_code.newsboy;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,7 +40,7 @@ import java.util.logging.Logger;
  * <p>Implementation of {@link com.elusive_code.newsboy.EventService} that uses</p>
  * <ul>
  *    <li>weak references to store subscribers</li>
- *    <li>asynchronous, and uses Fork-Join framework to schedule notifications</li>
+ *    <li>asynchronous, and uses Fork-Join framework (or supplied executor) to schedule notifications</li>
  * </ul>
  *
  * @see com.elusive_code.newsboy.EventService
@@ -40,28 +52,93 @@ public class AsyncEventService implements EventService {
     private static final Logger LOG = Logger.getLogger(AsyncEventService.class.getName());
 
     /**
-     * <p>Subscribed listeners. Used for faster unsubscribing</p>
-     * <p>Key - listener object, Value - set of event handlers</p>
+     * <p>Subscribed listeners and their event handlers.</p>
+     * <p>Publishing reads it without locking, so publishers don't contend with each other
+     * or with subscribing threads</p>
      */
-    private WeakHashMap<Object, Collection<WeakEventHandler>> listeners = new WeakHashMap<>();
+    private HandlerRegistry handlerRegistry = new HandlerRegistry();
 
     /**
-     * <p>Listeners by event class, used for faster publishing</p>
-     * <p>Key - class of event to handle, Value - set of event handlers from all listeners</p>
+     * <p>Sequencers of ordered events for every ordering key.</p>
+     * <p>Sequencer removes itself when it has no pending events</p>
      */
-    private Map<Class, Set<WeakEventHandler>> listenersByClass = new HashMap<>();
+    private ConcurrentMap<Object, OrderedSequencer> orderedSequencers = new ConcurrentHashMap<>();
 
     /**
-     * Lock for synchronizing listeners' collections
+     * <p>Latest sticky event of every class, replayed to new listeners.</p>
+     * <p>Key - class of the event, Value - the event</p>
      */
-    private Lock listenersLock = new ReentrantLock();
+    private ConcurrentMap<Class, Object> stickyEvents = new ConcurrentHashMap<>();
 
-    private PublishAction lastOrderedEvent = null;
+    /**
+     * Ordering key of events published without key
+     */
+    private static final Object DEFAULT_ORDERING_KEY = new Object();
+
+    /**
+     * Amount of chunks per pool thread event with large fan-out is split to, so idle threads have something to steal
+     */
+    private static final int FAN_OUT_CHUNKS_PER_THREAD = 4;
 
     private ForkJoinPool notificatorPool;
 
+    /**
+     * <p>Executor that runs notification tasks instead of the fork-join pool, null if pool is used.</p>
+     * <p>Tasks aren't forked then, they are submitted to executor one by one</p>
+     */
+    private Executor executor;
+
+    /**
+     * Marks threads that run tasks of {@link #executor}
+     */
+    private ThreadLocal<Boolean> executorThread = new ThreadLocal<>();
+
+    /**
+     * Bounded queue of notifications, null if pool accepts unlimited work
+     */
+    private NotificationQueue notificationQueue;
+
+    /**
+     * Queues of notifications by priority, null unless enabled with {@link #setPriorityEnabled(boolean)}.
+     * When enabled all notifications go through them
+     */
+    private volatile PriorityLanes priorityLanes;
+
+    /**
+     * Timer of batch handlers that have {@link Subscribe#batchDelay()}
+     * and of watchdog scans, created on first use
+     */
+    private volatile ScheduledExecutorService timer;
+
+    /**
+     * Watchdog of handlers with timeout, created on first use
+     */
+    private volatile HandlerWatchdog watchdog;
+
+    /**
+     * Set by {@link #shutdown()}, timer isn't created afterwards
+     */
+    private volatile boolean shutdown;
+
+    /**
+     * Timeout of handlers that don't define their own, 0 if unlimited
+     */
+    private volatile long handlerTimeout;
+
+    private volatile boolean failOnTimeout;
+
+    private volatile int fanOutGranularity = 64;
+
     private boolean saveEventStackTrace;
 
+    private int stackTraceSampling = 1;
+
+    private int stackTraceDepth;
+
+    private volatile InvokerStrategy invokerStrategy = InvokerStrategy.METHOD_HANDLE;
+
+    private volatile EventServiceMonitor monitor = EventServiceMonitor.NOOP;
+
     public AsyncEventService() {
         this(Runtime.getRuntime().availableProcessors());
     }
@@ -75,6 +152,40 @@ public class AsyncEventService implements EventService {
         this.saveEventStackTrace = saveEventStackTrace;
     }
 
+    /**
+     * <p>Creates service with bounded notification queue.</p>
+     * <p>
+     *     At most {@code capacity} notifications wait for handling,
+     *     when queue is full publishers are treated according to overflow policy.
+     * </p>
+     * @param parallelism parallelism level of notification pool
+     * @param capacity maximum amount of queued notifications
+     * @param overflowPolicy what to do when queue is full
+     * @see OverflowPolicy
+     */
+    public AsyncEventService(int parallelism, int capacity, OverflowPolicy overflowPolicy) {
+        this(parallelism, true);
+        this.notificationQueue = new NotificationQueue(notificatorPool, capacity, overflowPolicy);
+    }
+
+    /**
+     * <p>Creates service that runs notifications on supplied executor instead of fork-join pool.</p>
+     * <p>
+     *     Useful when listeners perform blocking operations that would starve fork-join pool:
+     *     executor could be thread pool of suitable size, virtual threads or even calling thread,
+     *     see {@link NotificationExecutors}.
+     *     Returned {@link com.elusive_code.newsboy.NotificationFuture}s behave the same way.
+     * </p>
+     * <p>Executor is not shut down by the service.</p>
+     * @param executor executor that runs notifications
+     * @see NotificationExecutors
+     */
+    public AsyncEventService(Executor executor) {
+        if (executor == null) throw new IllegalArgumentException("Executor is null");
+        this.executor = executor;
+        this.saveEventStackTrace = true;
+    }
+
     /**
      * <p>Whether event publishing stack trace is stored</p>
      *
@@ -103,38 +214,449 @@ public class AsyncEventService implements EventService {
         this.saveEventStackTrace = saveEventStackTrace;
     }
 
+    /**
+     * <p>Stack trace is stored for one of this many published events</p>
+     *
+     * @see #setStackTraceSampling(int)
+     * @return sampling rate
+     */
+    public int getStackTraceSampling() {
+        return stackTraceSampling;
+    }
+
+    /**
+     * <p>
+     *     Defines how often event publishing stack trace is stored when {@link #isSaveEventStackTrace()} is true.
+     *     Stack trace is stored for randomly chosen events, on average one of {@code sampling} events.
+     * </p>
+     * <p>
+     *     By default it is 1, stack trace is stored for every event
+     * </p>
+     * @param sampling sampling rate, 1 or more
+     */
+    public void setStackTraceSampling(int sampling) {
+        if (sampling < 1) throw new IllegalArgumentException("Sampling should be positive: " + sampling);
+        this.stackTraceSampling = sampling;
+    }
+
+    /**
+     * <p>Maximum amount of stored stack trace elements</p>
+     *
+     * @see #setStackTraceDepth(int)
+     * @return stack trace depth, 0 if unlimited
+     */
+    public int getStackTraceDepth() {
+        return stackTraceDepth;
+    }
+
+    /**
+     * <p>
+     *     Limits amount of stack trace elements that are kept for published event
+     *     and appended to exceptions occurred during event handling.
+     * </p>
+     * <p>
+     *     By default it is 0, stack trace is not limited
+     * </p>
+     * @param depth maximum stack trace depth, 0 for unlimited
+     */
+    public void setStackTraceDepth(int depth) {
+        if (depth < 0) throw new IllegalArgumentException("Depth is negative: " + depth);
+        this.stackTraceDepth = depth;
+    }
+
+    /**
+     * Captures event publishing stack trace according to stack trace settings
+     * @param event published event or events
+     * @return stack trace or null if it is not stored for this event
+     */
+    private EventStackTrace captureStackTrace(Object event) {
+        if (!saveEventStackTrace) return null;
+        int sampling = stackTraceSampling;
+        if (sampling > 1 && ThreadLocalRandom.current().nextInt(sampling) != 0) return null;
+        return new EventStackTrace(event, stackTraceDepth);
+    }
+
+    /**
+     * <p>Strategy used to invoke event handling methods of subscribed listeners</p>
+     *
+     * @see #setInvokerStrategy(InvokerStrategy)
+     * @return invoker strategy
+     */
+    public InvokerStrategy getInvokerStrategy() {
+        return invokerStrategy;
+    }
+
+    /**
+     * <p>
+     *     Defines how event handling methods are invoked.
+     *     Applies to listeners subscribed after the call.
+     * </p>
+     * <p>
+     *     By default it is {@link InvokerStrategy#METHOD_HANDLE}
+     * </p>
+     * @param invokerStrategy strategy used to invoke event handling methods
+     */
+    public void setInvokerStrategy(InvokerStrategy invokerStrategy) {
+        if (invokerStrategy == null) throw new IllegalArgumentException("Invoker strategy is null");
+        this.invokerStrategy = invokerStrategy;
+    }
+
+    /**
+     * <p>Timeout of event handling methods that don't define their own</p>
+     *
+     * @see #setHandlerTimeout(long)
+     * @return timeout in milliseconds, 0 if unlimited
+     */
+    public long getHandlerTimeout() {
+        return handlerTimeout;
+    }
+
+    /**
+     * <p>
+     *     Defines maximum time event handling methods are expected to run,
+     *     unless they define their own with {@link Subscribe#timeout()}.
+     *     Notifications that run longer are reported with the stack of the thread running them.
+     *     Applies to events published after the call.
+     * </p>
+     * <p>
+     *     Only notifications represented by {@link com.elusive_code.newsboy.NotificationFuture} are watched,
+     *     direct invocations of {@link #post(Object)} and deliveries of batch handlers are not.
+     *     Running notifications are checked periodically, every quarter of the shortest timeout
+     *     but no more often than every 10 milliseconds, so timeout is noticed with that delay.
+     * </p>
+     * <p>
+     *     By default it is 0, handlers aren't watched
+     * </p>
+     * @param timeout timeout in milliseconds, 0 for unlimited
+     * @see #setFailOnTimeout(boolean)
+     */
+    public void setHandlerTimeout(long timeout) {
+        if (timeout < 0) throw new IllegalArgumentException("Timeout is negative: " + timeout);
+        this.handlerTimeout = timeout;
+    }
+
+    /**
+     * <p>Whether notifications that exceed timeout are failed</p>
+     *
+     * @see #setFailOnTimeout(boolean)
+     * @return true if they are failed
+     */
+    public boolean isFailOnTimeout() {
+        return failOnTimeout;
+    }
+
+    /**
+     * <p>
+     *     Defines whether notification that exceeded its timeout fails with {@link HandlerTimeoutException}.
+     *     Handler itself keeps running, but its future completes and ordered events waiting for it proceed.
+     * </p>
+     * <p>
+     *     By default it is false, slow notifications are only reported
+     * </p>
+     * @param failOnTimeout flag whether to fail notifications on timeout
+     */
+    public void setFailOnTimeout(boolean failOnTimeout) {
+        this.failOnTimeout = failOnTimeout;
+    }
+
+    /**
+     * <p>Whether notifications are queued by priority</p>
+     *
+     * @see #setPriorityEnabled(boolean)
+     * @return true if priorities apply
+     */
+    public boolean isPriorityEnabled() {
+        return priorityLanes != null;
+    }
+
+    /**
+     * <p>
+     *     Defines whether notifications are queued by priority in front of notification pool,
+     *     see {@link Subscribe#priority()} and {@link #publish(Object, Priority)}.
+     * </p>
+     * <p>
+     *     Every notification then passes through the priority queues and events are dispatched by publishers,
+     *     which costs some throughput when priorities aren't used.
+     *     Doesn't apply to services with bounded queue.
+     *     Notifications already queued by priority are handled when it's disabled.
+     * </p>
+     * <p>
+     *     By default it is false, priorities are ignored
+     * </p>
+     * @param enabled flag whether to queue notifications by priority
+     */
+    public synchronized void setPriorityEnabled(boolean enabled) {
+        if (!enabled) {
+            priorityLanes = null;
+        } else if (priorityLanes == null) {
+            int parallelism = getParallelism();
+            priorityLanes = new PriorityLanes(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * <p>Maximum amount of notifications of single event run one after another by one task</p>
+     *
+     * @see #setFanOutGranularity(int)
+     * @return granularity, 0 if every notification is forked
+     */
+    public int getFanOutGranularity() {
+        return fanOutGranularity;
+    }
+
+    /**
+     * <p>
+     *     Defines how notifications of event with many handlers are scheduled.
+     *     If there are more handlers than granularity, range of notifications is split in halves
+     *     until it fits granularity (or smaller chunk, so every pool thread gets several of them),
+     *     then notifications of the chunk are run one after another by the task that split it.
+     *     Events with less handlers fork task per notification.
+     *     Same applies to notifications of {@link #publishAll(Collection)} and handlers of {@link #post(Object)}.
+     * </p>
+     * <p>
+     *     Lower granularity spreads slow handlers across more threads,
+     *     higher one reduces scheduling overhead of tiny handlers.
+     *     Notifications of batch, serial and inline handlers, and ones passing through bounded queue
+     *     or priority lanes are dispatched as usual.
+     * </p>
+     * <p>
+     *     By default it is 64
+     * </p>
+     * @param granularity maximum chunk of notifications run by single task, 0 to fork every notification
+     */
+    public void setFanOutGranularity(int granularity) {
+        if (granularity < 0) throw new IllegalArgumentException("Granularity is negative: " + granularity);
+        this.fanOutGranularity = granularity;
+    }
+
+    /**
+     * <p>Monitor notified of publishing and event handling</p>
+     *
+     * @see #setMonitor(EventServiceMonitor)
+     * @return monitor, {@link EventServiceMonitor#NOOP} if service is not monitored
+     */
+    public EventServiceMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * <p>
+     *     Defines monitor notified of published events, handling time of every notification
+     *     and listeners claimed by GC. Applies to events published after the call.
+     * </p>
+     * <p>
+     *     By default it is {@link EventServiceMonitor#NOOP}, in that case handling time is not measured
+     * </p>
+     * @param monitor instrumentation hook
+     * @see JmxEventServiceMonitor
+     */
+    public void setMonitor(EventServiceMonitor monitor) {
+        if (monitor == null) throw new IllegalArgumentException("Monitor is null");
+        this.monitor = monitor;
+        handlerRegistry.setMonitor(monitor);
+    }
+
+    /**
+     * Monitor to report notifications to
+     * @return current monitor or null if service is not monitored
+     */
+    private EventServiceMonitor activeMonitor() {
+        EventServiceMonitor monitor = this.monitor;
+        return monitor == EventServiceMonitor.NOOP ? null : monitor;
+    }
+
+    /**
+     * <p>Capacity of notification queue</p>
+     * @return maximum amount of queued notifications, or 0 if queue is unbounded
+     */
+    public int getCapacity() {
+        return notificationQueue == null ? 0 : notificationQueue.getCapacity();
+    }
+
+    /**
+     * <p>Policy applied to publishers when notification queue is full</p>
+     * @return overflow policy, or null if queue is unbounded
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return notificationQueue == null ? null : notificationQueue.getOverflowPolicy();
+    }
+
+    /**
+     * <p>Changes policy applied to publishers when notification queue is full</p>
+     * @param overflowPolicy overflow policy
+     * @throws IllegalStateException if queue is unbounded
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (notificationQueue == null) throw new IllegalStateException("Notification queue is unbounded");
+        notificationQueue.setOverflowPolicy(overflowPolicy);
+    }
+
+    /**
+     * <p>Amount of notifications waiting for handling.</p>
+     * <p>For bounded queue it is exact size of the queue,
+     * otherwise it is estimate of tasks queued in the notification pool and in priority lanes.
+     * Ordered events waiting for their turn are added to either.</p>
+     * @return queue depth
+     */
+    public long getQueueDepth() {
+        long depth = orderedBacklog();
+        if (notificationQueue != null) return depth + notificationQueue.size();
+        PriorityLanes lanes = priorityLanes;
+        if (lanes != null) depth += lanes.size();
+        if (executor instanceof ThreadPoolExecutor) return depth + ((ThreadPoolExecutor) executor).getQueue().size();
+        if (executor != null) return depth;
+        return depth + notificatorPool.getQueuedTaskCount() + notificatorPool.getQueuedSubmissionCount();
+    }
+
+    /**
+     * @return amount of ordered events waiting for their turn
+     */
+    private long orderedBacklog() {
+        long backlog = 0;
+        for (OrderedSequencer sequencer : orderedSequencers.values()) {
+            backlog += sequencer.backlog();
+        }
+        return backlog;
+    }
+
+    /**
+     * <p>Amount of threads running notifications.</p>
+     * <p>For fork-join pool it is estimate of threads that are not waiting to steal tasks,
+     * for thread pool executor it is amount of threads executing tasks, 0 for other executors.</p>
+     * @return active thread count
+     */
+    public int getActiveThreadCount() {
+        if (executor instanceof ThreadPoolExecutor) return ((ThreadPoolExecutor) executor).getActiveCount();
+        if (executor != null) return 0;
+        return notificatorPool.getActiveThreadCount();
+    }
+
+    /**
+     * <p>Targeted amount of threads running notifications.</p>
+     * @return parallelism of the fork-join pool, maximum pool size of thread pool executor, 0 for other executors
+     */
+    public int getParallelism() {
+        if (executor instanceof ThreadPoolExecutor) return ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+        if (executor != null) return 0;
+        return notificatorPool.getParallelism();
+    }
+
+    /**
+     * <p>Amount of event handlers of subscribed listeners.</p>
+     * <p>Handlers of listeners claimed by GC are removed in background, so they may be counted for a while</p>
+     * @return amount of registered event handlers
+     */
+    public int getHandlerCount() {
+        return handlerRegistry.handlerCount();
+    }
+
+    /**
+     * <p>Releases threads of the service: notification pool and timer of batch handlers and watchdog are shut down.</p>
+     * <p>
+     *     Notifications already scheduled in the pool are handled, while batches waiting for their delay
+     *     and watchdog scans are cancelled. Afterwards publishing to the pool and scheduling timers
+     *     fail with {@link RejectedExecutionException}.
+     *     Executor supplied to constructor is not shut down.
+     * </p>
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (notificatorPool != null) notificatorPool.shutdown();
+        if (timer != null) timer.shutdownNow();
+    }
+
+    /**
+     * @return true if {@link #shutdown()} was called
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
     @Override
     public void subscribe(Object object) {
         if (object == null) return;
 
-        LinkedList<WeakEventHandler> eventHandlers = EventServiceHelper.createObjectEventHandlers(object);
-
-        listenersLock.lock();
-        try {
-            listeners.put(object, eventHandlers);
-            for (WeakEventHandler handler : eventHandlers) {
-                addListenerByClass(handler.getEventType(), handler);
-            }
-        } finally {
-            listenersLock.unlock();
-        }
+        LinkedList<WeakEventHandler> eventHandlers =
+                EventServiceHelper.createObjectEventHandlers(object, invokerStrategy);
+        handlerRegistry.add(object, eventHandlers, false);
+        replaySticky(object, eventHandlers);
     }
 
     @Override
-    public void unsubscribe(Object object) {
+    public void subscribeStrong(Object object) {
         if (object == null) return;
 
-        listenersLock.lock();
-        try {
-            Collection<WeakEventHandler> handlers = listeners.remove(object);
-            if (handlers == null || handlers.size() <= 0) return;
+        LinkedList<WeakEventHandler> eventHandlers =
+                EventServiceHelper.createObjectEventHandlers(object, invokerStrategy, true);
+        handlerRegistry.add(object, eventHandlers, true);
+        replaySticky(object, eventHandlers);
+    }
 
+    /**
+     * <p>Notifies handlers of just subscribed listener of matching sticky events.</p>
+     * <p>Sticky event is put to the map before it's published and listener is registered before the map is read,
+     * so listener subscribed concurrently with publishing receives the event at least once
+     * (or twice, from both publishing and replay).</p>
+     * @param listener subscribed listener
+     * @param handlers handlers of the listener
+     */
+    private void replaySticky(Object listener, Collection<WeakEventHandler> handlers) {
+        if (stickyEvents.isEmpty()) return;
+        EventServiceMonitor monitor = activeMonitor();
+        ArrayList<EventNotifierTask> notifiers = new ArrayList<>();
+        for (Object event : stickyEvents.values()) {
             for (WeakEventHandler handler : handlers) {
-                removeListenerByClass(handler.getEventType(), handler);
+                if (handler.getEventType().isInstance(event) && accepts(handler, listener, event)) {
+                    EventNotifierTask task = new EventNotifierTask(handler, event, this, null);
+                    prepare(task, monitor);
+                    notifiers.add(task);
+                }
             }
-        } finally {
-            listenersLock.unlock();
         }
+        dispatchAll(notifiers.iterator());
+    }
+
+    /**
+     * <p>Publish event to this EventService and keep it as the latest event of its class.</p>
+     * <p>No delivery order guaranteed.</p>
+     * <p>Listeners subscribed later are notified of the latest sticky event of every class they handle
+     * right after subscribing, through the same notification path as published events.
+     * Sticky events are kept per exact class of the event, so memory is bounded by amount of their classes.</p>
+     * @param event event to notify of
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     * @see #removeStickyEvent(Class)
+     */
+    @Override
+    public List<NotificationFuture> publishSticky(Object event) {
+        if (event == null) return Collections.EMPTY_LIST;
+        stickyEvents.put(event.getClass(), event);
+        return publish(event);
+    }
+
+    /**
+     * Latest sticky event of the class
+     * @param eventClass exact class of the event
+     * @param <T> type of the event
+     * @return event or null if there is none
+     */
+    public <T> T getStickyEvent(Class<T> eventClass) {
+        return eventClass.cast(stickyEvents.get(eventClass));
+    }
+
+    /**
+     * Stops replaying latest sticky event of the class to new listeners
+     * @param eventClass exact class of the event
+     * @param <T> type of the event
+     * @return removed event or null if there was none
+     */
+    public <T> T removeStickyEvent(Class<T> eventClass) {
+        return eventClass.cast(stickyEvents.remove(eventClass));
+    }
+
+    @Override
+    public void unsubscribe(Object object) {
+        if (object == null) return;
+        handlerRegistry.remove(object);
     }
 
     /**
@@ -150,76 +672,876 @@ public class AsyncEventService implements EventService {
     @Override
     public List<NotificationFuture> publish ( Object event ) {
         if ( event == null ) return Collections.EMPTY_LIST;
-        EventStackTrace stackTrace = null;
-        if (saveEventStackTrace){
-            stackTrace = new EventStackTrace(event);
+        EventStackTrace stackTrace = captureStackTrace(event);
+        PublishAction task = new PublishAction ( event, handlerRegistry.resolve(event.getClass()), stackTrace, true );
+        submit ( task );
+        return new ArrayList<NotificationFuture>(task.getNotifiers());
+    }
+
+    /**
+     * <p>Publish event to this EventService with priority that overrides priorities of the handlers.</p>
+     * <p>No delivery order guaranteed.</p>
+     * <p>
+     *     Notifications are queued by priority in front of notification pool,
+     *     so high priority ones don't wait behind the backlog of lower ones.
+     *     Notifications are dispatched by publisher right away.
+     *     Priority doesn't apply to batch and serial handlers and to services with bounded queue.
+     * </p>
+     * <p>
+     *     Priorities must be enabled with {@link #setPriorityEnabled(boolean)},
+     *     otherwise it is the same as {@link #publish(Object)}.
+     * </p>
+     * @param event event to notify of
+     * @param priority priority of event notifications
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     * @see Subscribe#priority()
+     */
+    @Override
+    public List<NotificationFuture> publish ( Object event, Priority priority ) {
+        if ( priority == null ) throw new IllegalArgumentException("Priority is null");
+        if ( priorityLanes == null ) return publish ( event );
+        if ( event == null ) return Collections.EMPTY_LIST;
+        EventStackTrace stackTrace = captureStackTrace(event);
+        PublishAction task = new PublishAction ( event, handlerRegistry.resolve(event.getClass()), stackTrace, true );
+        for (EventNotifierTask notifier : task.getNotifiers()) {
+            notifier.setPriority(priority);
         }
-        PublishAction task = new PublishAction ( event, stackTrace );
-        notificatorPool.execute ( task );
+        //dispatched by publisher, so it doesn't wait in the pool either
+        task.invoke();
         return new ArrayList<NotificationFuture>(task.getNotifiers());
     }
 
     /**
      * <p>Publish event to this EventService.</p>
      * <p>Guaranteed to deliver in the same order that was published
-     * relative to other <b>ordered</b> events</p>
+     * relative to other <b>ordered</b> events published without ordering key</p>
      * <p>When using returned futures keep in mind they may fail with
      * {@link com.elusive_code.newsboy.WeakReferenceCollectedException}
      * in that case nothing should be done.
      * Listener was claimed by GC before event handling (but after event scheduling)</p>
      * @param event event to notify of
      * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     * @see #publishOrdered(Object, Object)
      */
     @Override
     @Subscribe
     public List<NotificationFuture> publishOrdered ( Object event ) {
+        return publishOrdered(DEFAULT_ORDERING_KEY, event);
+    }
+
+    /**
+     * <p>Publish event to this EventService.</p>
+     * <p>Guaranteed to deliver in the same order that was published
+     * relative to other <b>ordered</b> events with equal ordering key.
+     * Events with different keys are delivered independently of each other.</p>
+     * <p>When using returned futures keep in mind they may fail with
+     * {@link com.elusive_code.newsboy.WeakReferenceCollectedException}
+     * in that case nothing should be done.
+     * Listener was claimed by GC before event handling (but after event scheduling)</p>
+     * @param key ordering key, if null event is ordered relative to events published without key
+     * @param event event to notify of
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     */
+    @Override
+    public List<NotificationFuture> publishOrdered ( Object key, Object event ) {
         if ( event == null ) return Collections.EMPTY_LIST;
-        EventStackTrace stackTrace = null;
-        if (saveEventStackTrace){
-            stackTrace = new EventStackTrace(event);
+        if ( key == null ) key = DEFAULT_ORDERING_KEY;
+        EventStackTrace stackTrace = captureStackTrace(event);
+        PublishAction task = new PublishAction ( event, stackTrace );
+        offerOrdered(key, task);
+        return new ArrayList<NotificationFuture>(task.getNotifiers());
+    }
+
+    /**
+     * <p>Publish several events to this EventService.</p>
+     * <p>No delivery order guaranteed.</p>
+     * <p>Cheaper than publishing events one by one: handlers are resolved once per distinct event class
+     * and notifications are split among tasks by {@link #setFanOutGranularity(int) fan-out granularity}
+     * rather than scheduled by separate tasks for every event.
+     * Single stack trace is stored for the whole batch.</p>
+     * <p>When using returned futures keep in mind they may fail with
+     * {@link com.elusive_code.newsboy.WeakReferenceCollectedException}
+     * in that case nothing should be done.
+     * Listener was claimed by GC before event handling (but after event scheduling)</p>
+     * @param events events to notify of, null elements are ignored
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     */
+    @Override
+    public List<NotificationFuture> publishAll ( Collection<?> events ) {
+        if ( events == null || events.isEmpty() ) return Collections.EMPTY_LIST;
+        EventStackTrace stackTrace = captureStackTrace(events);
+
+        Map<Class, WeakEventHandler[]> resolved = new HashMap<>();
+        ArrayList<EventNotifierTask> notifiers = new ArrayList<>();
+        for (Object event : events) {
+            if (event == null) continue;
+            collectNotifiers(event, resolve(resolved, event.getClass()), stackTrace, notifiers, true);
+        }
+        if (notifiers.isEmpty()) return Collections.EMPTY_LIST;
+
+        EventNotifierTask[] tasks = notifiers.toArray(new EventNotifierTask[notifiers.size()]);
+        submit(new DispatchAction(tasks, 0, tasks.length, chunkSize(tasks.length)));
+        return new ArrayList<NotificationFuture>(notifiers);
+    }
+
+    /**
+     * <p>Publish several events to this EventService.</p>
+     * <p>Guaranteed to deliver events in the order of collection iteration, and in the same order
+     * relative to other <b>ordered</b> events published without ordering key</p>
+     * @param events events to notify of, null elements are ignored
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     * @see #publishAllOrdered(Object, java.util.Collection)
+     */
+    @Override
+    public List<NotificationFuture> publishAllOrdered ( Collection<?> events ) {
+        return publishAllOrdered(DEFAULT_ORDERING_KEY, events);
+    }
+
+    /**
+     * <p>Publish several events to this EventService.</p>
+     * <p>Guaranteed to deliver events in the order of collection iteration, and in the same order
+     * relative to other <b>ordered</b> events with equal ordering key.</p>
+     * <p>Handlers are resolved once per distinct event class, single stack trace is stored for the whole batch.</p>
+     * <p>When using returned futures keep in mind they may fail with
+     * {@link com.elusive_code.newsboy.WeakReferenceCollectedException}
+     * in that case nothing should be done.
+     * Listener was claimed by GC before event handling (but after event scheduling)</p>
+     * @param key ordering key, if null events are ordered relative to events published without key
+     * @param events events to notify of, null elements are ignored
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     */
+    @Override
+    public List<NotificationFuture> publishAllOrdered ( Object key, Collection<?> events ) {
+        if ( events == null || events.isEmpty() ) return Collections.EMPTY_LIST;
+        if ( key == null ) key = DEFAULT_ORDERING_KEY;
+        EventStackTrace stackTrace = captureStackTrace(events);
+
+        Map<Class, WeakEventHandler[]> resolved = new HashMap<>();
+        ArrayList<NotificationFuture> result = new ArrayList<>();
+        for (Object event : events) {
+            if (event == null) continue;
+            PublishAction task = new PublishAction(event, resolve(resolved, event.getClass()), stackTrace);
+            offerOrdered(key, task);
+            result.addAll(task.getNotifiers());
         }
-        lastOrderedEvent = new PublishAction ( event, lastOrderedEvent, true, stackTrace );
+        return result;
+    }
 
-        notificatorPool.execute ( lastOrderedEvent );
-        return new ArrayList<NotificationFuture>(lastOrderedEvent.getNotifiers());
+    /**
+     * <p>Adds ordered event to the sequencer of its key.</p>
+     * <p>With bounded queue event takes slot while it waits for its turn, so overflow policy applies.
+     * Notifications of the dropped event are cancelled.</p>
+     * @param key ordering key
+     * @param task ordered event
+     * @throws EventQueueFullException if queue is full and policy is {@link OverflowPolicy#FAIL}
+     */
+    private void offerOrdered(Object key, PublishAction task) {
+        if (notificationQueue != null) {
+            boolean reserved = false;
+            try {
+                reserved = notificationQueue.reserve();
+            } finally {
+                if (!reserved) {
+                    for (EventNotifierTask notifier : task.getNotifiers()) {
+                        notifier.drop();
+                    }
+                }
+            }
+            if (!reserved) return;
+        }
+        while (true) {
+            OrderedSequencer sequencer = orderedSequencers.get(key);
+            if (sequencer == null) {
+                sequencer = new OrderedSequencer(key);
+                OrderedSequencer existing = orderedSequencers.putIfAbsent(key, sequencer);
+                if (existing != null) sequencer = existing;
+            }
+            if (sequencer.offer(task)) return;
+            //sequencer retired concurrently, it shouldn't be used anymore
+            orderedSequencers.remove(key, sequencer);
+        }
     }
 
-    private void addListenerByClass (Class clazz, WeakEventHandler handler) {
-        Set handlers = listenersByClass.get(clazz);
+    /**
+     * Resolves handlers of event class, reusing ones already resolved for the batch
+     * @param resolved handlers resolved for the batch
+     * @param eventClass class of the event
+     * @return handlers of the event
+     */
+    private WeakEventHandler[] resolve(Map<Class, WeakEventHandler[]> resolved, Class eventClass) {
+        WeakEventHandler[] handlers = resolved.get(eventClass);
         if (handlers == null) {
-            handlers = new HashSet();
-            listenersByClass.put(clazz,handlers);
+            handlers = handlerRegistry.resolve(eventClass);
+            resolved.put(eventClass, handlers);
+        }
+        return handlers;
+    }
+
+    /**
+     * Creates notification tasks for the event
+     * @param event event to notify of
+     * @param handlers handlers of the event
+     * @param stackTrace event publishing stack trace or null
+     * @param notifiers collection to put created tasks into
+     * @param conflate whether notifications may be conflated with pending ones
+     */
+    private void collectNotifiers(Object event, WeakEventHandler[] handlers, EventStackTrace stackTrace,
+                                  Collection<EventNotifierTask> notifiers, boolean conflate) {
+        EventServiceMonitor monitor = activeMonitor();
+        int count = 0;
+        for (WeakEventHandler eventHandler : handlers) {
+            Object listener = eventHandler.getTarget();
+            if (listener == null) {
+                //listener collected by GC
+                handlerRegistry.removeCollected(eventHandler);
+            } else if (accepts(eventHandler, listener, event)) {
+                EventNotifierTask task = new EventNotifierTask(eventHandler, event, this, stackTrace);
+                prepare(task, monitor);
+                notifiers.add(conflate ? conflate(task) : task);
+                count++;
+            }
+        }
+        if (monitor != null) monitor.eventPublished(event.getClass(), count);
+    }
+
+    /**
+     * Evaluates filter of the handler, if there is one
+     * @param handler event handler
+     * @param listener listener of the handler
+     * @param event published event
+     * @return false if handler shouldn't be notified of the event, or filter failed
+     */
+    private boolean accepts(WeakEventHandler handler, Object listener, Object event) {
+        if (!handler.hasFilter()) return true;
+        try {
+            return handler.accepts(listener, event);
+        } catch (Throwable ex) {
+            LOG.log(Level.WARNING, "Failed to filter " + event + " for " + handler + "\n", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Puts event of the notification into pending one, if handler conflates it
+     * @param task new notification
+     * @return pending notification that took the event, or task itself if it should be dispatched
+     * @see Conflator
+     */
+    private EventNotifierTask conflate(EventNotifierTask task) {
+        WeakEventHandler handler = task.getHandler();
+        Object event = task.getEvent();
+        if (!handler.conflates(event)) return task;
+        Conflator conflator = handler.getConflator();
+        task.setConflation(conflator, Conflator.keyOf(event));
+        return conflator.offer(task);
+    }
+
+    /**
+     * Sets monitor and deadline of the notification
+     * @param task created notification
+     * @param monitor current monitor or null
+     */
+    private void prepare(EventNotifierTask task, EventServiceMonitor monitor) {
+        task.setMonitor(monitor);
+        long timeout = task.getHandler().getTimeout();
+        if (timeout == 0) timeout = handlerTimeout;
+        if (timeout > 0) task.setTimeout(timeout, getWatchdog(), failOnTimeout);
+    }
+
+    /**
+     * <p>Publish event to this EventService without tracking notifications.</p>
+     * <p>No delivery order guaranteed.</p>
+     * <p>Unlike {@link #publish(Object)} it creates no {@link com.elusive_code.newsboy.NotificationFuture}:
+     * listeners are notified by tasks that split handlers among themselves by fan-out granularity,
+     * failures are logged along with event stack trace if it is stored.
+     * Filters of handlers are evaluated by publisher, so rejected event doesn't reach the pool.</p>
+     * @param event event to notify of
+     */
+    @Override
+    public void post(Object event) {
+        if (event == null) return;
+        WeakEventHandler[] handlers = acceptingHandlers(event, handlerRegistry.resolve(event.getClass()));
+        EventServiceMonitor monitor = activeMonitor();
+        if (monitor != null) monitor.eventPublished(event.getClass(), handlers.length);
+        if (handlers.length == 0) return;
+        EventStackTrace stackTrace = captureStackTrace(event);
+        PostAction task = new PostAction(event, handlers, 0, handlers.length, chunkSize(handlers.length), stackTrace);
+        task.monitor = monitor;
+        if (monitor != null) task.created = System.nanoTime();
+        if (priorityLanes != null && notificationQueue == null) {
+            //notifications are queued by priority right away, see submit
+            task.invoke();
+        } else {
+            enqueue(task);
+        }
+    }
+
+    /**
+     * Evaluates filters of the handlers in publisher thread, so that rejected event creates no tasks
+     * @param event published event
+     * @param handlers handlers of the event
+     * @return handlers that accept the event, same array if there are no rejections
+     */
+    private WeakEventHandler[] acceptingHandlers(Object event, WeakEventHandler[] handlers) {
+        WeakEventHandler[] result = handlers;
+        int count = 0;
+        for (int i = 0; i < handlers.length; i++) {
+            WeakEventHandler eventHandler = handlers[i];
+            boolean accepted = true;
+            if (eventHandler.hasFilter()) {
+                Object listener = eventHandler.getTarget();
+                if (listener == null) {
+                    //listener collected by GC
+                    handlerRegistry.removeCollected(eventHandler);
+                    accepted = false;
+                } else {
+                    accepted = accepts(eventHandler, listener, event);
+                }
+            }
+            if (accepted) {
+                if (result != handlers) result[count] = eventHandler;
+                count++;
+            } else if (result == handlers) {
+                result = Arrays.copyOf(handlers, handlers.length);
+            }
+        }
+        return count == handlers.length ? handlers : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * <p>Starts publishing task.</p>
+     * <p>With bounded queue it is run by publisher, so that overflow policy applies to it.
+     * Same with priority lanes, so that notifications are queued by priority right away
+     * rather than wait in the pool behind the backlog</p>
+     * @param task publishing task
+     */
+    private void submit(ForkJoinTask<?> task) {
+        if (notificationQueue != null || priorityLanes != null) {
+            task.invoke();
+        } else {
+            schedule(task);
+        }
+    }
+
+    /**
+     * Queues task if queue is bounded, otherwise schedules it in the pool
+     * @param task task to schedule
+     */
+    private void enqueue(ForkJoinTask<?> task) {
+        if (notificationQueue != null) {
+            notificationQueue.submit(task);
+        } else {
+            schedule(task);
+        }
+    }
+
+    /**
+     * Whether current thread belongs to notification pool (or runs task of executor), tasks are split only there
+     */
+    private boolean inNotificatorPool() {
+        if (executor != null) return executorThread.get() != null;
+        return ForkJoinTask.getPool() == notificatorPool;
+    }
+
+    /**
+     * Determines chunk of notifications run one after another by single task, see {@link #setFanOutGranularity(int)}
+     * @param size amount of notifications
+     * @return chunk size, 1 if every notification gets task of its own
+     */
+    private int chunkSize(int size) {
+        int granularity = fanOutGranularity;
+        if (granularity == 0 || size <= granularity) return 1;
+        //chunk shrinks for moderate fan-outs, so they are still spread across all threads
+        int parallelism = Math.max(getParallelism(), 1);
+        return Math.max(1, Math.min(granularity, size / (parallelism * FAN_OUT_CHUNKS_PER_THREAD)));
+    }
+
+    /**
+     * <p>Task that handles range of array, splitting it among pool threads.</p>
+     * <p>Range is split in halves, one of which is forked, until it fits chunk size,
+     * then elements of the chunk are handled by this task one after another.
+     * Halves are forked in the pool even with bounded queue: they are parts of notification that already
+     * passed the queue, so overflow policy must not drop some of them.
+     * Outside of the pool (publisher feeding bounded queue or priority lanes) whole range is handled in place.</p>
+     */
+    protected abstract class RangeAction extends RecursiveAction {
+
+        protected int from;
+        protected int to;
+        protected int chunk;
+
+        protected RangeAction(int from, int to, int chunk) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (inNotificatorPool()) {
+                while (to - from > chunk) {
+                    int middle = (from + to) >>> 1;
+                    schedule(split(middle, to));
+                    to = middle;
+                }
+            }
+            handle(from, to);
+        }
+
+        /**
+         * @return task that handles part of the range
+         */
+        protected abstract RangeAction split(int from, int to);
+
+        /**
+         * Handles elements of the range one after another
+         */
+        protected abstract void handle(int from, int to);
+    }
+
+    /**
+     * <p>Task that notifies handlers from the range of array without creating task per handler.</p>
+     * <p>Notifications that need scheduling of their own (batch, serial and conflated ones)
+     * are dispatched as usual, and so is every notification when priority lanes are enabled.</p>
+     */
+    protected class PostAction extends RangeAction {
+
+        private Object             event;
+        private WeakEventHandler[] handlers;
+        private EventStackTrace    stackTrace;
+
+        //monitor and creation time of the event, shared by tasks that split the range
+        private EventServiceMonitor monitor;
+        private long                created;
+
+        public PostAction(Object event, WeakEventHandler[] handlers, int from, int to, int chunk,
+                          EventStackTrace stackTrace) {
+            super(from, to, chunk);
+            this.event = event;
+            this.handlers = handlers;
+            this.stackTrace = stackTrace;
+        }
+
+        @Override
+        protected RangeAction split(int from, int to) {
+            PostAction half = new PostAction(event, handlers, from, to, chunk, stackTrace);
+            half.monitor = monitor;
+            half.created = created;
+            return half;
+        }
+
+        @Override
+        protected void handle(int from, int to) {
+            for (int i = from; i < to; i++) {
+                notify(handlers[i]);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "post of " + event;
+        }
+
+        private void notify(WeakEventHandler eventHandler) {
+            if (eventHandler.isBatch() || eventHandler.getMailbox() != null || eventHandler.conflates(event)
+                || priorityLanes != null && notificationQueue == null) {
+                EventNotifierTask task = new EventNotifierTask(eventHandler, event, AsyncEventService.this, stackTrace);
+                prepare(task, monitor);
+                dispatch(conflate(task));
+                return;
+            }
+            long started = monitor == null ? 0 : System.nanoTime();
+            Throwable failure = null;
+            try {
+                eventHandler.handleEvent(event, AsyncEventService.this);
+            } catch (WeakReferenceCollectedException ex) {
+                //listener collected by GC
+                handlerRegistry.removeCollected(eventHandler);
+                return;
+            } catch (Throwable ex) {
+                failure = ex;
+                if (stackTrace != null) {
+                    try {
+                        stackTrace.appendTo(ex);
+                    } catch (Throwable t) {
+                        LOG.log(Level.FINE, "Failed to update stack trace for " + ex, t);
+                    }
+                }
+                LOG.log(Level.WARNING, "Failed to invoke " + eventHandler + " with " + event + "\n", ex);
+            }
+            if (monitor != null) {
+                try {
+                    monitor.notificationCompleted(eventHandler.getMethod(), started - created,
+                                                  System.nanoTime() - started, failure);
+                } catch (Throwable ex) {
+                    LOG.log(Level.WARNING, "Monitor failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Schedules task in the notification pool, forks it if current thread belongs to the pool.</p>
+     * <p>If service runs on executor, task is submitted there</p>
+     * @param task task to schedule
+     */
+    private void schedule(ForkJoinTask<?> task) {
+        if (executor != null) {
+            executor.execute(new ExecutorTask(task));
+        } else if (inNotificatorPool()) {
+            task.fork();
+        } else {
+            notificatorPool.execute(task);
+        }
+    }
+
+    /**
+     * Runs task of the service on executor
+     */
+    private class ExecutorTask implements Runnable {
+
+        private ForkJoinTask<?> task;
+
+        public ExecutorTask(ForkJoinTask<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            //executor may run task in the thread that already runs another one, e.g. calling thread
+            boolean nested = executorThread.get() != null;
+            if (!nested) executorThread.set(Boolean.TRUE);
+            try {
+                task.quietlyInvoke();
+            } finally {
+                if (!nested) executorThread.remove();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(task);
+        }
+    }
+
+    /**
+     * <p>Forks notification from the pool thread, or queues it if queue is bounded.</p>
+     * <p>Notifications of batch handlers are passed to their batchers,
+     * ones of serial handlers are put to mailbox of the listener, bypassing bounded queue.
+     * Inline handlers are run right away</p>
+     * @param task notification to schedule
+     */
+    private void dispatch(EventNotifierTask task) {
+        dispatch(task, false);
+    }
+
+    /**
+     * Dispatches notification
+     * @param task notification to schedule
+     * @param run whether to run notification in current thread instead of forking it
+     */
+    private void dispatch(EventNotifierTask task, boolean run) {
+        //conflated notification is dispatched by the first of its publishers
+        if (!task.claim()) return;
+        WeakEventHandler handler = task.getHandler();
+        if (handler.isBatch()) {
+            handler.getBatcher().add(task, this);
+        } else if (handler.getMailbox() != null) {
+            handler.getMailbox().add(task, this);
+        } else if (handler.isInline()) {
+            task.quietlyInvoke();
+        } else if (notificationQueue != null) {
+            notificationQueue.submit(task);
+        } else if (priorityLanes != null) {
+            submitByPriority(task);
+        } else if (run) {
+            task.quietlyInvoke();
+        } else {
+            schedule(task);
+        }
+    }
+
+    /**
+     * Queues notification by its priority, or schedules it if priorities were disabled meanwhile
+     * @param task notification to schedule
+     */
+    private void submitByPriority(EventNotifierTask task) {
+        PriorityLanes lanes = priorityLanes;
+        if (lanes != null) {
+            lanes.submit(task, this);
+        } else {
+            schedule(task);
+        }
+    }
+
+    /**
+     * Dispatches notifications, if queue rejects one of them the rest are cancelled
+     * @param notifiers notifications to schedule
+     */
+    private void dispatchAll(Iterator<EventNotifierTask> notifiers) {
+        dispatchAll(notifiers, false);
+    }
+
+    /**
+     * Dispatches notifications, if queue rejects one of them the rest are cancelled
+     * @param notifiers notifications to schedule
+     * @param run whether to run notifications in current thread instead of forking them
+     */
+    private void dispatchAll(Iterator<EventNotifierTask> notifiers, boolean run) {
+        try {
+            while (notifiers.hasNext()) {
+                dispatch(notifiers.next(), run);
+            }
+        } catch (RuntimeException ex) {
+            while (notifiers.hasNext()) {
+                EventNotifierTask next = notifiers.next();
+                if (next.claim()) next.drop();
+            }
+            throw ex;
         }
-        handlers.add(handler);
     }
 
-    private void removeListenerByClass(Class clazz, WeakEventHandler handler) {
-        Set<WeakEventHandler> handlers = listenersByClass.get(clazz);
-        if (handlers == null) return;
-        handlers.remove(handler);
+    /**
+     * Schedules delivery of the batch in the notification pool
+     * @param batcher batcher to flush
+     */
+    void scheduleBatchFlush(final EventBatcher batcher) {
+        schedule(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                batcher.flush(AsyncEventService.this);
+            }
+        });
+    }
+
+    /**
+     * Schedules draining of priority lanes
+     * @param lanes lanes to drain
+     */
+    void scheduleLanes(final PriorityLanes lanes) {
+        schedule(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                lanes.drain();
+            }
+        });
     }
 
     /**
-     * Task that initiates event notifications and handles ordering
+     * Schedules draining of the listener mailbox
+     * @param mailbox mailbox to drain
      */
-    protected class PublishAction extends RecursiveAction {
+    void scheduleMailbox(final Mailbox mailbox) {
+        schedule(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                mailbox.drain(AsyncEventService.this);
+            }
+        });
+    }
+
+    /**
+     * Schedules flush of the batch after its delay passes
+     * @param batcher batcher to flush
+     * @param delay delay in milliseconds
+     */
+    void scheduleBatchTimer(final EventBatcher batcher, long delay) {
+        getTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                batcher.timerExpired(AsyncEventService.this);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private ScheduledExecutorService getTimer() {
+        ScheduledExecutorService timer = this.timer;
+        if (timer == null) {
+            synchronized (this) {
+                timer = this.timer;
+                if (timer == null) {
+                    if (shutdown) throw new RejectedExecutionException("Event service is shut down");
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "NewsBoy timer");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    timer = executor;
+                    this.timer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    private HandlerWatchdog getWatchdog() {
+        HandlerWatchdog watchdog = this.watchdog;
+        if (watchdog == null) {
+            synchronized (this) {
+                watchdog = this.watchdog;
+                if (watchdog == null) {
+                    watchdog = new HandlerWatchdog(getTimer());
+                    this.watchdog = watchdog;
+                }
+            }
+        }
+        return watchdog;
+    }
+
+    /**
+     * <p>Task that dispatches notifications from the range of array.</p>
+     * <p>Notifications of the chunk are run by this task one after another, when it runs in the pool.</p>
+     */
+    protected class DispatchAction extends RangeAction {
+
+        private EventNotifierTask[] notifiers;
+
+        public DispatchAction(EventNotifierTask[] notifiers, int from, int to, int chunk) {
+            super(from, to, chunk);
+            this.notifiers = notifiers;
+        }
+
+        @Override
+        protected RangeAction split(int from, int to) {
+            return new DispatchAction(notifiers, from, to, chunk);
+        }
+
+        @Override
+        protected void handle(int from, int to) {
+            //publisher feeding bounded queue or priority lanes queues notifications one by one
+            dispatchAll(Arrays.asList(notifiers).subList(from, to).iterator(), inNotificatorPool());
+        }
+    }
+
+    /**
+     * <p>Delivers ordered events with equal ordering key one after another.</p>
+     * <p>
+     *     Events are queued, and only one of them is in flight: next one is scheduled
+     *     by the last completed notification of the previous one, so no thread waits for the turn.
+     *     Counter of pending events decides which thread schedules:
+     *     publisher that found sequencer idle or notification that completed the previous event.
+     *     If the latter finds queue empty, since publisher has counted next event but not enqueued it yet,
+     *     it leaves the turn to the publisher instead of waiting: whichever of them sees both event and the turn
+     *     schedules it.
+     * </p>
+     * <p>
+     *     When counter drops to zero sequencer retires itself (counter becomes negative)
+     *     and is removed from {@link #orderedSequencers}, publishers that find it retired create new one.
+     * </p>
+     */
+    protected class OrderedSequencer {
+
+        private Object                               key;
+        private ConcurrentLinkedQueue<PublishAction> queue   = new ConcurrentLinkedQueue<>();
+        private AtomicInteger                        pending = new AtomicInteger();
+        /**
+         * Set when previous event completed before the next one was enqueued
+         */
+        private AtomicBoolean                        turn    = new AtomicBoolean();
+
+        public OrderedSequencer(Object key) {
+            this.key = key;
+        }
+
+        /**
+         * Adds event to the sequence, schedules it if there are no other events pending
+         * @param action ordered event
+         * @return false if sequencer is retired and can't accept events
+         */
+        public boolean offer(PublishAction action) {
+            while (true) {
+                int count = pending.get();
+                if (count < 0) return false;
+                if (pending.compareAndSet(count, count + 1)) {
+                    action.sequencer = this;
+                    queue.offer(action);
+                    if (count == 0) {
+                        start(queue.poll());
+                    } else if (turn.get()) {
+                        claimTurn();
+                    }
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Invoked when all notifications of the current event are complete, schedules next event if any
+         */
+        public void completed() {
+            if (pending.decrementAndGet() == 0) {
+                if (pending.compareAndSet(0, -1)) {
+                    orderedSequencers.remove(key, this);
+                }
+                //otherwise publisher that incremented counter has scheduled its event
+                return;
+            }
+            //publisher already counted next event but may have not enqueued it yet
+            turn.set(true);
+            if (queue.peek() != null) {
+                claimTurn();
+            }
+        }
+
+        /**
+         * Schedules next event if the turn wasn't claimed by another thread
+         */
+        private void claimTurn() {
+            if (turn.compareAndSet(true, false)) {
+                start(queue.poll());
+            }
+        }
+
+        /**
+         * Schedules event which turn has come, returns its slot of bounded queue
+         * @param action ordered event
+         */
+        private void start(PublishAction action) {
+            if (notificationQueue != null) notificationQueue.release();
+            schedule(action);
+        }
+
+        /**
+         * @return amount of events waiting for their turn
+         */
+        public int backlog() {
+            int count = pending.get();
+            return count > 1 ? count - 1 : 0;
+        }
+    }
+
+    /**
+     * Task that initiates event notifications, for ordered events it also tracks their completion
+     */
+    protected class PublishAction extends RecursiveAction implements NotificationCallback {
 
         private Object                  event;
         private List<EventNotifierTask> notifiers;
-        private PublishAction           previousEvent;
-        private boolean                 ordered;
         private EventStackTrace         stackTrace;
+        private OrderedSequencer        sequencer;
+        private AtomicInteger           remaining;
 
         public PublishAction(Object event, EventStackTrace stackTrace) {
-            this(event, null, false, stackTrace);
+            this(event, handlerRegistry.resolve(event.getClass()), stackTrace);
+        }
+
+        public PublishAction(Object event, WeakEventHandler[] handlers, EventStackTrace stackTrace) {
+            this(event, handlers, stackTrace, false);
         }
 
-        public PublishAction(Object event, PublishAction previousEvent, boolean ordered, EventStackTrace stackTrace) {
+        /**
+         * @param event published event
+         * @param handlers handlers of the event
+         * @param stackTrace event publishing stack trace or null
+         * @param conflate whether notifications may be conflated with pending ones, not for ordered events
+         */
+        public PublishAction(Object event, WeakEventHandler[] handlers, EventStackTrace stackTrace, boolean conflate) {
             this.event = event;
-            this.ordered = ordered;
-            this.previousEvent = previousEvent;
             this.stackTrace = stackTrace;
-            this.notifiers = Collections.unmodifiableList(collectNotifiers());
+            this.notifiers = Collections.unmodifiableList(collectNotifiers(handlers, conflate));
         }
 
         public List<EventNotifierTask> getNotifiers() {
@@ -228,62 +1550,52 @@ public class AsyncEventService implements EventService {
 
         /**
          * Collects all notifiers for current event
+         * @param handlers handlers of the event
+         * @param conflate whether notifications may be conflated with pending ones
          * @return list of notification tasks
          */
-        private LinkedList<EventNotifierTask> collectNotifiers() {
+        private LinkedList<EventNotifierTask> collectNotifiers(WeakEventHandler[] handlers, boolean conflate) {
             LinkedList<EventNotifierTask> notifiers = new LinkedList<>();
-
-            listenersLock.lock();
-            try {
-                Set<Class> classes = EventServiceHelper.collectClassHierarchy(event.getClass());
-                for (Class clazz : classes) {
-                    Set<WeakEventHandler> handlers = listenersByClass.get(clazz);
-                    if (handlers != null) {
-                        Iterator<WeakEventHandler> i = handlers.iterator();
-                        while (i.hasNext()) {
-                            WeakEventHandler eventHandler = i.next();
-                            Object listener = eventHandler.getTarget();
-                            if (listener == null) {
-                                //listener collected by GC
-                                i.remove();
-                            } else {
-                                EventNotifierTask task = new EventNotifierTask(eventHandler, event,
-                                                                               AsyncEventService.this,
-                                                                               stackTrace);
-                                notifiers.add(task);
-                            }
-                        }
-                    }
-                }
-                return notifiers;
-            } finally {
-                listenersLock.unlock();
-            }
+            AsyncEventService.this.collectNotifiers(event, handlers, stackTrace, notifiers, conflate);
+            return notifiers;
         }
 
         protected void compute() {
-            try {
-                //if event ordered and it's not first one wait for it's turn
-                if (previousEvent != null) {
-                    previousEvent.quietlyJoin();
-                }
+            if (sequencer == null) {
+                fanOut();
+                return;
+            }
 
-                //scheduling notification
-                for (EventNotifierTask task : getNotifiers()) {
-                    task.fork();
-                }
+            //ordered event: next one is scheduled when all notifications complete
+            if (notifiers.isEmpty()) {
+                sequencer.completed();
+                return;
+            }
+            remaining = new AtomicInteger(notifiers.size());
+            for (EventNotifierTask task : notifiers) {
+                task.setCallback(this);
+            }
+            fanOut();
+        }
 
-                //if event ordered we should wait for notifications to complete
-                //so that next event won't fire until we notify of this one
-                if (ordered) {
-                    for (EventNotifierTask task : getNotifiers()) {
-                        task.quietlyJoin();
-                    }
-                }
-            } finally {
-                //for processed events we need to set previous to null to prevent memory leak
-                //(chaining events with hard references like current event->prev->prev->.....->first event)
-                previousEvent = null;
+        /**
+         * Dispatches notifications, splitting them to chunks if there are more than {@link #fanOutGranularity}
+         */
+        private void fanOut() {
+            int size = notifiers.size();
+            int chunk = chunkSize(size);
+            if (chunk == 1 || !inNotificatorPool()) {
+                //notifications are forked one by one, or queued by publisher
+                dispatchAll(notifiers.iterator());
+                return;
+            }
+            new DispatchAction(notifiers.toArray(new EventNotifierTask[size]), 0, size, chunk).compute();
+        }
+
+        @Override
+        public void notificationCompleted(EventNotifierTask task) {
+            if (remaining.decrementAndGet() == 0) {
+                sequencer.completed();
             }
         }
     }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Marks events of which only the newest value matters, like price ticks or progress updates.</p>
+ * <p>
+ *     While notification of such event is waiting for handling, newer event of the same class
+ *     and with equal conflation key replaces it instead of scheduling another notification.
+ *     Applies to every handler, except batch ones and ordered publishing.
+ * </p>
+ *
+ * @see Subscribe#conflate()
+ */
+public interface Conflatable {
+
+    /**
+     * Events with different keys are not conflated, e.g. price ticks of different instruments
+     * @return conflation key, or null if all events of the class are conflated together
+     */
+    Object getConflationKey();
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Keeps pending notifications of the handler by conflation key.</p>
+ * <p>
+ *     Newer event is put into pending notification of its key, if it hasn't started yet,
+ *     so publisher receives that notification as its future and no task is scheduled.
+ *     Notification leaves the map when it starts, so map holds at most one entry per key
+ *     and only while notifications are waiting.
+ * </p>
+ *
+ * @see Subscribe#conflate()
+ * @see Conflatable
+ */
+class Conflator {
+
+    private final ConcurrentMap<Object, EventNotifierTask> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Determines conflation key of the event
+     * @param event published event
+     * @return event class, or class and key of {@link Conflatable} event
+     */
+    static Object keyOf(Object event) {
+        if (event instanceof Conflatable) {
+            Object key = ((Conflatable) event).getConflationKey();
+            if (key != null) return new Key(event.getClass(), key);
+        }
+        return event.getClass();
+    }
+
+    /**
+     * Offers new notification
+     * @param task new notification, conflation key should be already set
+     * @return pending notification that took event of the task, or task itself if it should be scheduled
+     */
+    EventNotifierTask offer(EventNotifierTask task) {
+        Object key = task.getConflationKey();
+        while (true) {
+            EventNotifierTask current = pending.putIfAbsent(key, task);
+            if (current == null) return task;
+            if (current.conflate(task.getEvent())) return current;
+            //current one has already started
+            if (pending.replace(key, current, task)) return task;
+        }
+    }
+
+    /**
+     * Invoked when notification starts, after that it doesn't accept newer events
+     * @param task started notification
+     */
+    void started(EventNotifierTask task) {
+        pending.remove(task.getConflationKey(), task);
+    }
+
+    /**
+     * Conflation key of {@link Conflatable} event
+     */
+    private static class Key {
+        private final Class  eventClass;
+        private final Object key;
+
+        private Key(Class eventClass, Object key) {
+            this.eventClass = eventClass;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return eventClass == other.eventClass && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * eventClass.hashCode() + key.hashCode();
+        }
+    }
+}
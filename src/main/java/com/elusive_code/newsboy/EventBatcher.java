@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Coalesces notifications of the batch handler into lists of events.</p>
+ * <p>
+ *     Batch is flushed when it reaches {@link Subscribe#batchSize()}
+ *     or when {@link Subscribe#batchDelay()} passes since its first event.
+ *     Without delay, or when batch contains ordered event, flush is scheduled right away
+ *     and takes everything that was accumulated by the time it runs.
+ * </p>
+ * <p>
+ *     Every notification of the batch is completed with the result of the handler invocation,
+ *     or with its failure.
+ * </p>
+ *
+ * @see WeakEventHandler#isBatch()
+ */
+class EventBatcher {
+
+    private static final Logger LOG = Logger.getLogger(EventBatcher.class.getName());
+
+    private WeakEventHandler handler;
+    private int              batchSize;
+    private long             batchDelay;
+
+    //guarded by this
+    private ArrayList<EventNotifierTask> pending = new ArrayList<>();
+    private boolean                      flushScheduled;
+    private boolean                      timerScheduled;
+    private boolean                      urgent;
+
+    EventBatcher(WeakEventHandler handler, int batchSize, long batchDelay) {
+        this.handler = handler;
+        this.batchSize = batchSize;
+        this.batchDelay = batchDelay;
+    }
+
+    /**
+     * Adds notification to the batch, schedules flush if needed
+     * @param task notification of this batch handler
+     * @param service service that delivers batches
+     */
+    void add(EventNotifierTask task, AsyncEventService service) {
+        boolean flush = false;
+        boolean timer = false;
+        synchronized (this) {
+            pending.add(task);
+            //ordered events shouldn't wait, sequence is blocked until they are handled
+            if (task.hasCallback()) urgent = true;
+            if (!flushScheduled) {
+                if (isReady()) {
+                    flushScheduled = flush = true;
+                } else if (!timerScheduled) {
+                    timerScheduled = timer = true;
+                }
+            }
+        }
+        if (flush) service.scheduleBatchFlush(this);
+        if (timer) service.scheduleBatchTimer(this, batchDelay);
+    }
+
+    /**
+     * Invoked when batch delay passed, schedules flush unless it's already scheduled
+     * @param service service that delivers batches
+     */
+    void timerExpired(AsyncEventService service) {
+        synchronized (this) {
+            timerScheduled = false;
+            if (flushScheduled || pending.isEmpty()) return;
+            flushScheduled = true;
+        }
+        service.scheduleBatchFlush(this);
+    }
+
+    /**
+     * Delivers single batch, schedules next flush if there are enough notifications left
+     * @param service service that delivers batches
+     */
+    void flush(AsyncEventService service) {
+        List<EventNotifierTask> batch;
+        boolean again = false;
+        boolean timer = false;
+        synchronized (this) {
+            List<EventNotifierTask> head = pending.subList(0, Math.min(batchSize, pending.size()));
+            batch = new ArrayList<>(head);
+            head.clear();
+            if (pending.isEmpty()) {
+                urgent = false;
+                flushScheduled = false;
+            } else if (isReady()) {
+                again = true;
+            } else {
+                flushScheduled = false;
+                if (!timerScheduled) timerScheduled = timer = true;
+            }
+        }
+        deliver(batch);
+        if (again) service.scheduleBatchFlush(this);
+        if (timer) service.scheduleBatchTimer(this, batchDelay);
+    }
+
+    private boolean isReady() {
+        return pending.size() >= batchSize || batchDelay <= 0 || urgent;
+    }
+
+    private void deliver(List<EventNotifierTask> batch) {
+        if (batch.isEmpty()) return;
+        ArrayList<Object> events = new ArrayList<>(batch.size());
+        for (EventNotifierTask task : batch) {
+            events.add(task.getEvent());
+        }
+
+        EventNotifierTask first = batch.get(0);
+        EventServiceMonitor monitor = first.getMonitor();
+        long started = monitor == null ? 0 : System.nanoTime();
+        Object result = null;
+        Throwable failure = null;
+        try {
+            result = handler.handleEvent(events, first.getSource());
+        } catch (WeakReferenceCollectedException ex) {
+            LOG.log(Level.WARNING, ex.getMessage());
+            failure = ex;
+            monitor = null;
+        } catch (Throwable ex) {
+            LOG.log(Level.WARNING, "Failed to invoke " + handler + " with batch of " + events.size() + " events\n", ex);
+            first.updateStackTrace(ex);
+            failure = ex;
+        }
+        if (monitor != null) {
+            try {
+                monitor.notificationCompleted(handler.getMethod(), started - first.getCreated(),
+                                              System.nanoTime() - started, failure);
+            } catch (Throwable ex) {
+                LOG.log(Level.WARNING, "Monitor failed", ex);
+            }
+        }
+
+        for (EventNotifierTask task : batch) {
+            task.completeBatched(result, failure);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EventBatcher{ " + handler + " }";
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Predicate that decides whether event handler should be notified of the event.</p>
+ * <p>
+ *     Filter is evaluated by publishing thread before notification is created,
+ *     so events it rejects cost neither task allocation nor handler invocation.
+ *     One instance is created per listener class and shared by all listeners of the class,
+ *     so implementation should be stateless and have public no-argument constructor.
+ * </p>
+ *
+ * @param <E> type of filtered events
+ * @see Subscribe#filter()
+ */
+public interface EventFilter<E> {
+
+    /**
+     * @param event published event
+     * @return true if handler should be notified of the event
+     */
+    boolean accept(E event);
+
+}
@@ -16,11 +16,10 @@
 
 package com.elusive_code.newsboy;
 
-import org.apache.commons.lang3.ArrayUtils;
-
 import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,10 +35,47 @@ public class EventNotifierTask extends RecursiveTask implements NotificationFutu
     private static final Logger LOG = Logger.getLogger(EventNotifierTask.class.getName());
 
     private WeakEventHandler eventHandler;
-    private Object           event;
+    private volatile Object  event;
     private EventSource      source;
     private EventStackTrace  eventStackTrace;
 
+    private NotificationCallback callback;
+
+    /**
+     * Set to 1 when callback is notified, notification may complete twice if it fails on timeout
+     */
+    private volatile int callbackNotified;
+
+    private static final AtomicIntegerFieldUpdater<EventNotifierTask> CALLBACK_NOTIFIED =
+            AtomicIntegerFieldUpdater.newUpdater(EventNotifierTask.class, "callbackNotified");
+
+    private Conflator conflator;
+    private Object    conflationKey;
+    private boolean   started;
+
+    /**
+     * Set to 1 when conflated notification is dispatched, it may be returned to several publishers
+     */
+    private volatile int dispatched;
+
+    private static final AtomicIntegerFieldUpdater<EventNotifierTask> DISPATCHED =
+            AtomicIntegerFieldUpdater.newUpdater(EventNotifierTask.class, "dispatched");
+
+    private Priority priority;
+
+    private long            timeout;
+    private HandlerWatchdog watchdog;
+    private boolean         failOnTimeout;
+
+    /**
+     * Thread running handler with timeout and its deadline in nanos, runner is null when handler isn't running
+     */
+    private volatile Thread runner;
+    private volatile long   deadline;
+
+    private EventServiceMonitor monitor;
+    private long                created;
+
     public EventNotifierTask(WeakEventHandler handler, Object event) {
         this(handler, event, null);
     }
@@ -75,29 +111,264 @@ public class EventNotifierTask extends RecursiveTask implements NotificationFutu
         return eventStackTrace;
     }
 
+    /**
+     * Sets callback notified when event handling is finished, must be set before task is scheduled
+     * @param callback completion callback
+     */
+    void setCallback(NotificationCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Sets monitor notified of event handling, must be set before task is scheduled
+     * @param monitor monitor, null if notification is not monitored
+     */
+    void setMonitor(EventServiceMonitor monitor) {
+        this.monitor = monitor;
+        if (monitor != null) this.created = System.nanoTime();
+    }
+
+    /**
+     * Sets deadline of event handling, must be set before task is scheduled
+     * @param timeout maximum handling time in milliseconds
+     * @param watchdog watchdog that checks the deadline
+     * @param failOnTimeout whether to fail notification when deadline is missed, or only report it
+     * @see HandlerTimeoutException
+     */
+    void setTimeout(long timeout, HandlerWatchdog watchdog, boolean failOnTimeout) {
+        this.timeout = timeout;
+        this.watchdog = watchdog;
+        this.failOnTimeout = failOnTimeout;
+    }
+
+    /**
+     * Makes notification accept newer events until it starts, must be set before task is offered to conflator
+     * @param conflator pending notifications of the handler
+     * @param key conflation key of the event
+     * @see Conflator
+     */
+    void setConflation(Conflator conflator, Object key) {
+        this.conflator = conflator;
+        this.conflationKey = key;
+    }
+
+    Object getConflationKey() {
+        return conflationKey;
+    }
+
+    /**
+     * Replaces event of notification that hasn't started yet
+     * @param newer newer event
+     * @return false if notification has already started
+     */
+    synchronized boolean conflate(Object newer) {
+        if (started) return false;
+        event = newer;
+        return true;
+    }
+
+    /**
+     * Claims right to dispatch the notification
+     * @return false if it's conflated notification that was already dispatched by another publisher
+     */
+    boolean claim() {
+        return conflator == null || DISPATCHED.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Overrides priority of the handler, must be set before task is scheduled
+     * @param priority priority of the event
+     */
+    void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @return priority of the event if it was published with one, otherwise priority of the handler
+     */
+    Priority getPriority() {
+        return priority != null ? priority : eventHandler.getPriority();
+    }
+
+    EventServiceMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when task was created, valid only for monitored task
+     */
+    long getCreated() {
+        return created;
+    }
+
+    boolean hasCallback() {
+        return callback != null;
+    }
+
+    WeakEventHandler getHandler() {
+        return eventHandler;
+    }
+
+    EventSource getSource() {
+        return source;
+    }
+
+    /**
+     * Completes notification that was handled as part of the batch
+     * @param result result of batch handling
+     * @param ex failure of batch handling or null
+     * @see EventBatcher
+     */
+    void completeBatched(Object result, Throwable ex) {
+        try {
+            if (ex != null) {
+                completeExceptionally(ex);
+            } else {
+                complete(result);
+            }
+        } finally {
+            notifyCallback();
+        }
+    }
+
     @Override
     protected Object compute() {
+        leaveConflator();
+        if (monitor != null) return computeMonitored();
+        try {
+            return completeWith(handleEvent());
+        } catch (WeakReferenceCollectedException ex) {
+            LOG.log(Level.WARNING, ex.getMessage());
+            completeExceptionally(ex);
+            return null;
+        } catch (Throwable ex) {
+            LOG.log(Level.WARNING, "Failed to invoke " + eventHandler + " with " + event + "\n", ex);
+            updateStackTrace(ex);
+            completeExceptionally(ex);
+            return null;
+        } finally {
+            notifyCallback();
+        }
+    }
+
+    /**
+     * <p>Completes the task before callback is notified, so the next ordered event
+     * never starts while future of the previous one is not done yet.</p>
+     * <p>Fork-join framework would complete it only after {@link #compute()} returns.</p>
+     * @param result result of event handling
+     * @return the same result
+     */
+    private Object completeWith(Object result) {
+        complete(result);
+        return result;
+    }
+
+    /**
+     * Invokes event handling method, watching its deadline if there is one
+     */
+    private Object handleEvent() throws Throwable {
+        if (timeout <= 0) return eventHandler.handleEvent(event, source);
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        runner = Thread.currentThread();
+        watchdog.watch(this, timeout);
         try {
             return eventHandler.handleEvent(event, source);
+        } finally {
+            runner = null;
+            watchdog.unwatch(this);
+        }
+    }
+
+    /**
+     * Same as {@link #compute()}, but reports time spent in queue and in event handling method to the monitor
+     */
+    private Object computeMonitored() {
+        long started = System.nanoTime();
+        boolean collected = false;
+        Throwable failure = null;
+        try {
+            return completeWith(handleEvent());
         } catch (WeakReferenceCollectedException ex) {
             LOG.log(Level.WARNING, ex.getMessage());
             completeExceptionally(ex);
+            collected = true;
             return null;
         } catch (Throwable ex) {
             LOG.log(Level.WARNING, "Failed to invoke " + eventHandler + " with " + event + "\n", ex);
             updateStackTrace(ex);
             completeExceptionally(ex);
+            failure = ex;
             return null;
+        } finally {
+            if (!collected) {
+                try {
+                    monitor.notificationCompleted(eventHandler.getMethod(), started - created,
+                                                  System.nanoTime() - started, failure);
+                } catch (Throwable ex) {
+                    LOG.log(Level.WARNING, "Monitor failed", ex);
+                }
+            }
+            notifyCallback();
+        }
+    }
+
+    /**
+     * Cancels notification that was never scheduled, callback is notified as if it was handled
+     * @see NotificationQueue
+     */
+    void drop() {
+        try {
+            leaveConflator();
+            cancel(false);
+        } finally {
+            notifyCallback();
+        }
+    }
+
+    /**
+     * Stops accepting newer events and removes notification from pending ones of the handler,
+     * so that next event gets notification of its own
+     */
+    private void leaveConflator() {
+        if (conflator == null) return;
+        synchronized (this) {
+            started = true;
+        }
+        conflator.started(this);
+    }
+
+    private void notifyCallback() {
+        if (callback != null && CALLBACK_NOTIFIED.compareAndSet(this, 0, 1)) {
+            callback.notificationCompleted(this);
+        }
+    }
+
+    /**
+     * <p>Checks deadline of running notification, invoked by {@link HandlerWatchdog}.</p>
+     * <p>If it's passed, reports notification with the stack of the running thread
+     * and fails it if needed, so that ordered events waiting for it may proceed</p>
+     * @param now current {@link System#nanoTime()}
+     * @return true if deadline is passed and notification was reported
+     */
+    boolean checkDeadline(long now) {
+        Thread thread = runner;
+        if (thread == null || isDone()) return false;
+        if (now - deadline < 0) return false;
+        HandlerTimeoutException ex = new HandlerTimeoutException(eventHandler, timeout);
+        ex.setStackTrace(thread.getStackTrace());
+        LOG.log(Level.WARNING, "Slow notification " + eventHandler + " with " + event + "\n", ex);
+        if (failOnTimeout) {
+            updateStackTrace(ex);
+            completeExceptionally(ex);
+            notifyCallback();
         }
+        return true;
     }
 
-    private void updateStackTrace(Throwable ex) {
+    void updateStackTrace(Throwable ex) {
         if (eventStackTrace == null) return;
         try {
-            StackTraceElement[] stack1 = ex.getStackTrace();
-            StackTraceElement[] stack2 = eventStackTrace.getStackTrace();
-            StackTraceElement[] result = ArrayUtils.addAll(stack1, stack2);
-            ex.setStackTrace(result);
+            eventStackTrace.appendTo(ex);
         } catch (Throwable t) {
             LOG.log(Level.FINE, "Failed to update stack trace for " + ex, t);
         }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Exception thrown to publisher when bounded notification queue is full
+ * and {@link OverflowPolicy#FAIL} is used.</p>
+ * <p>Notifications of the event that didn't fit into the queue are cancelled,
+ * ones that were queued before the failure are delivered.</p>
+ *
+ * @see OverflowPolicy
+ */
+public class EventQueueFullException extends IllegalStateException {
+
+    public EventQueueFullException(int capacity) {
+        super("Notification queue is full, capacity is " + capacity);
+    }
+}
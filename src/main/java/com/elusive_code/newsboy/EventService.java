@@ -16,6 +16,7 @@
 
 package com.elusive_code.newsboy;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -39,6 +40,17 @@ import java.util.List;
  */
 public interface EventService extends EventSource {
 
+    /**
+     * <p>Subscribe for events from this EventService, keeping strong reference to the listener.</p>
+     * <p>Unlike {@link #subscribe(Object)} listener won't be claimed by GC while subscribed,
+     * it should be unsubscribed explicitly with {@link #unsubscribe(Object)}.
+     * Intended for long-lived listeners, which don't benefit from weak references but pay for them.</p>
+     * <p>Subscribing listener again replaces previous subscription, weak or strong.</p>
+     * @param listener listener to receive events
+     * @see com.elusive_code.newsboy.Subscribe
+     */
+    void subscribeStrong(Object listener);
+
     /**
      * <p>Publish event to this EventService.</p>
      * <p>No delivery order guaranteed.</p>
@@ -47,6 +59,16 @@ public interface EventService extends EventSource {
      */
     List<NotificationFuture> publish(Object event);
 
+    /**
+     * <p>Publish event to this EventService with priority that overrides priorities of the handlers.</p>
+     * <p>No delivery order guaranteed.</p>
+     * @param event event to notify of
+     * @param priority priority of event notifications
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     * @see Subscribe#priority()
+     */
+    List<NotificationFuture> publish(Object event, Priority priority);
+
     /**
      *
      * <p>Publish event to this EventService.</p>
@@ -56,5 +78,65 @@ public interface EventService extends EventSource {
      * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
      */
     List<NotificationFuture> publishOrdered(Object event);
-    
+
+    /**
+     *
+     * <p>Publish event to this EventService.</p>
+     * <p>Guaranteed to deliver event in the same order it was published
+     * relative to other <b>ordered</b> events with equal ordering key (e.g. account id).
+     * Events with different keys may be delivered concurrently</p>
+     * @param key ordering key
+     * @param event event to notify of
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     */
+    List<NotificationFuture> publishOrdered(Object key, Object event);
+
+    /**
+     * <p>Publish several events to this EventService.</p>
+     * <p>No delivery order guaranteed.</p>
+     * @param events events to notify of
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     */
+    List<NotificationFuture> publishAll(Collection<?> events);
+
+    /**
+     * <p>Publish several events to this EventService.</p>
+     * <p>Guaranteed to deliver events in the order of collection iteration
+     * and in the same order they were published relative to other <b>ordered</b> events</p>
+     * @param events events to notify of
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     */
+    List<NotificationFuture> publishAllOrdered(Collection<?> events);
+
+    /**
+     * <p>Publish several events to this EventService.</p>
+     * <p>Guaranteed to deliver events in the order of collection iteration
+     * and in the same order they were published relative to other <b>ordered</b> events with equal ordering key</p>
+     * @param key ordering key
+     * @param events events to notify of
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     */
+    List<NotificationFuture> publishAllOrdered(Object key, Collection<?> events);
+
+    /**
+     * <p>Publish event to this EventService without tracking notifications.</p>
+     * <p>No delivery order guaranteed.</p>
+     * <p>Cheaper alternative to {@link #publish(Object)} for the cases when notification results are not needed:
+     * no {@link com.elusive_code.newsboy.NotificationFuture} is created,
+     * failures of the listeners are only logged.</p>
+     * @param event event to notify of
+     */
+    void post(Object event);
+
+    /**
+     * <p>Publish event to this EventService and keep it as the latest event of its class.</p>
+     * <p>No delivery order guaranteed.</p>
+     * <p>Listeners subscribed later are notified of the latest sticky event of every class they handle
+     * right after subscribing, so they don't need separate cache of the current state.
+     * Only one event per class is kept, it replaces the previous one.</p>
+     * @param event event to notify of
+     * @return list of {@link com.elusive_code.newsboy.NotificationFuture} that represent scheduled notifications
+     */
+    List<NotificationFuture> publishSticky(Object event);
+
 }
@@ -16,8 +16,6 @@
 
 package com.elusive_code.newsboy;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Set;
@@ -38,16 +36,47 @@ public class EventServiceHelper {
      * @return list of created event handlers
      */
     public static LinkedList<WeakEventHandler> createObjectEventHandlers(Object object) {
+        return createObjectEventHandlers(object, InvokerStrategy.METHOD_HANDLE);
+    }
+
+    /**
+     * <p>Looks for objects' methods marked with {@link com.elusive_code.newsboy.Subscribe} annotation and
+     * creates a list of {@link com.elusive_code.newsboy.WeakEventHandler} for this object</p>
+     *
+     * @param object for
+     * @param invokerStrategy strategy used to invoke event handling methods
+     * @return list of created event handlers
+     */
+    public static LinkedList<WeakEventHandler> createObjectEventHandlers(Object object,
+                                                                         InvokerStrategy invokerStrategy) {
+        return createObjectEventHandlers(object, invokerStrategy, false);
+    }
+
+    /**
+     * <p>Looks for objects' methods marked with {@link com.elusive_code.newsboy.Subscribe} annotation and
+     * creates a list of {@link com.elusive_code.newsboy.WeakEventHandler} for this object</p>
+     *
+     * @param object for
+     * @param invokerStrategy strategy used to invoke event handling methods
+     * @param strong whether handlers keep strong reference to the object
+     * @return list of created event handlers
+     */
+    public static LinkedList<WeakEventHandler> createObjectEventHandlers(Object object,
+                                                                         InvokerStrategy invokerStrategy,
+                                                                         boolean strong) {
 
-        Class clazz = object.getClass();
         LinkedList<WeakEventHandler> handlers = new LinkedList<>();
+        Mailbox mailbox = null;
 
-        for (Method m : clazz.getMethods()) {
-            for (Annotation a : m.getAnnotations()) {
-                if (Subscribe.class.equals(a.annotationType())) {
-                    handlers.add(new WeakEventHandler(object, m));
-                }
+        //methods are parsed once per class, only handlers bound to the object are created
+        for (HandlerDescriptor descriptor : HandlerDescriptor.forClass(object.getClass(), invokerStrategy)) {
+            WeakEventHandler handler = new WeakEventHandler(object, descriptor, strong);
+            if (handler.isSerial()) {
+                //serial handlers of the listener share single mailbox
+                if (mailbox == null) mailbox = new Mailbox();
+                handler.setMailbox(mailbox);
             }
+            handlers.add(handler);
         }
 
         return handlers;
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Management interface of {@link com.elusive_code.newsboy.JmxEventServiceMonitor}.</p>
+ * <p>Counters are accumulated since monitor was created or {@link #reset()}</p>
+ */
+public interface EventServiceMXBean {
+
+    /**
+     * @return amount of published events
+     */
+    long getPublishedEvents();
+
+    /**
+     * @return amount of published events by class name
+     */
+    Map<String, Long> getPublishedEventsByType();
+
+    /**
+     * @return amount of scheduled notifications, i.e. total fan-out of published events
+     */
+    long getNotifications();
+
+    /**
+     * @return average amount of handlers notified of published event
+     */
+    double getAverageFanOut();
+
+    /**
+     * @return amount of event handling methods that failed
+     */
+    long getFailures();
+
+    /**
+     * @return amount of listeners claimed by GC while subscribed
+     */
+    long getCollectedListeners();
+
+    /**
+     * @return average time notification waited for handling, in milliseconds
+     */
+    double getAverageQueueWaitMillis();
+
+    /**
+     * @return maximum time notification waited for handling, in milliseconds
+     */
+    double getMaxQueueWaitMillis();
+
+    /**
+     * @return amount of notifications waiting for handling
+     * @see AsyncEventService#getQueueDepth()
+     */
+    long getQueueDepth();
+
+    /**
+     * @return amount of threads running notifications
+     * @see AsyncEventService#getActiveThreadCount()
+     */
+    int getActiveThreads();
+
+    /**
+     * @return parallelism of notification pool
+     * @see AsyncEventService#getParallelism()
+     */
+    int getParallelism();
+
+    /**
+     * @return amount of event handlers of subscribed listeners
+     */
+    int getHandlerCount();
+
+    /**
+     * @return latency statistics of every event handling method, slowest first (by 99th percentile)
+     */
+    List<HandlerStatistics> getHandlerStatistics();
+
+    /**
+     * Resets all counters and statistics
+     */
+    void reset();
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.lang.reflect.Method;
+
+/**
+ * <p>Instrumentation hook of {@link com.elusive_code.newsboy.AsyncEventService}.</p>
+ * <p>
+ *     Methods are invoked synchronously from publishing and notifying threads,
+ *     so implementations should be thread-safe and cheap.
+ *     When service uses {@link #NOOP} monitor (the default), it doesn't even measure time.
+ * </p>
+ * <p>Pool occupancy and queue depth are not pushed to the monitor, they can be read from the service.</p>
+ *
+ * @see AsyncEventService#setMonitor(EventServiceMonitor)
+ * @see JmxEventServiceMonitor
+ */
+public interface EventServiceMonitor {
+
+    /**
+     * Monitor that ignores everything
+     */
+    EventServiceMonitor NOOP = new EventServiceMonitor() {
+        @Override
+        public void eventPublished(Class eventType, int notifications) {
+        }
+
+        @Override
+        public void notificationCompleted(Method method, long waitNanos, long durationNanos, Throwable failure) {
+        }
+
+        @Override
+        public void listenerCollected() {
+        }
+
+        @Override
+        public String toString() {
+            return "EventServiceMonitor.NOOP";
+        }
+    };
+
+    /**
+     * Invoked when event is published, before its notifications are scheduled
+     * @param eventType class of the published event
+     * @param notifications amount of handlers that will be notified of the event
+     */
+    void eventPublished(Class eventType, int notifications);
+
+    /**
+     * <p>Invoked after event handling method returned or failed.</p>
+     * <p>Batch handler reports every batch once, with the wait time of its first event.
+     * Notifications of listeners claimed by GC are not reported.</p>
+     * @param method event handling method
+     * @param waitNanos time passed since event was published till handling has started
+     * @param durationNanos time spent in event handling method
+     * @param failure exception thrown by handling method, or null
+     */
+    void notificationCompleted(Method method, long waitNanos, long durationNanos, Throwable failure);
+
+    /**
+     * Invoked when handlers of listener claimed by GC are expunged
+     */
+    void listenerCollected();
+
+}
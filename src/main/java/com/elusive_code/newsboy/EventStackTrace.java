@@ -16,16 +16,67 @@
 
 package com.elusive_code.newsboy;
 
+import org.apache.commons.lang3.ArrayUtils;
+
+import java.util.Arrays;
+
 /**
+ * <p>Stack trace of event publishing, appended to exceptions occurred during event handling.</p>
+ * <p>Message is formatted on demand, so event's {@code toString()} isn't invoked unless message is requested.</p>
+ *
  * Created by vlad on 20.04.14.
  */
 public class EventStackTrace extends Throwable {
 
     private Object event;
+    private int    maxDepth;
 
     public EventStackTrace(Object event){
-        super("Event: "+event);
+        this(event, 0);
+    }
+
+    /**
+     * @param event published event
+     * @param maxDepth maximum amount of stack trace elements kept, 0 for unlimited
+     */
+    public EventStackTrace(Object event, int maxDepth){
+        super();
         this.event = event;
+        this.maxDepth = maxDepth;
+    }
+
+    public Object getEvent() {
+        return event;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Event: " + event;
+    }
+
+    /**
+     * Returns stack trace elements, no more than max depth if it is set
+     * @return stack trace of event publishing
+     */
+    @Override
+    public StackTraceElement[] getStackTrace() {
+        StackTraceElement[] stack = super.getStackTrace();
+        if (maxDepth > 0 && stack.length > maxDepth) {
+            stack = Arrays.copyOf(stack, maxDepth);
+            setStackTrace(stack);
+        }
+        return stack;
+    }
+
+    /**
+     * Appends this stack trace to the stack trace of exception occurred during event handling
+     * @param ex exception produced by listener
+     */
+    public void appendTo(Throwable ex) {
+        StackTraceElement[] stack1 = ex.getStackTrace();
+        StackTraceElement[] stack2 = getStackTrace();
+        StackTraceElement[] result = ArrayUtils.addAll(stack1, stack2);
+        ex.setStackTrace(result);
     }
 
 }
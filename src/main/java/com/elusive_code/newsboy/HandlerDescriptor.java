@@ -0,0 +1,413 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.elusive_code.newsboy;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Listener-independent part of event handler: method, parsed {@link Subscribe} parameters and bound invoker.</p>
+ * <p>
+ *     Descriptors are resolved once per listener class and invoker strategy and cached,
+ *     so subscribing another instance of the class only creates {@link WeakEventHandler}s bound to it.
+ * </p>
+ * <p>
+ *     If class has {@link SubscriberIndex} generated at compile time, its methods and their parsed {@link Subscribe}
+ *     parameters are taken from the index, and methods are invoked by generated invokers regardless of invoker strategy.
+ * </p>
+ */
+final class HandlerDescriptor {
+
+    private static final Logger LOG = Logger.getLogger(HandlerDescriptor.class.getName());
+
+    private static final HandlerDescriptor[] NO_DESCRIPTORS = new HandlerDescriptor[0];
+
+    /**
+     * Descriptors of listener classes, per invoker strategy
+     */
+    private static final Map<InvokerStrategy, ClassValue<HandlerDescriptor[]>> CACHE =
+            new EnumMap<>(InvokerStrategy.class);
+
+    static {
+        for (final InvokerStrategy strategy : InvokerStrategy.values()) {
+            CACHE.put(strategy, new ClassValue<HandlerDescriptor[]>() {
+                @Override
+                protected HandlerDescriptor[] computeValue(Class<?> type) {
+                    return resolve(type, strategy);
+                }
+            });
+        }
+    }
+
+    private final Method         method;
+    private final Class          eventType;
+    private final int            sourceParameter;
+    private final int            eventParameter;
+    private final HandlerInvoker invoker;
+    private final int            batchSize;
+    private final long           batchDelay;
+    private final boolean        serial;
+    private final long           timeout;
+    private final boolean        conflate;
+    private final Priority       priority;
+    private final boolean        inline;
+    private final EventFilter    filter;
+    private final HandlerInvoker filterInvoker;
+
+    /**
+     * Parses {@link Subscribe} annotation of the method and binds invoker
+     * @param method event handling method
+     * @param invokerStrategy strategy that defines how method is invoked
+     * @see WeakEventHandler#WeakEventHandler(Object, java.lang.reflect.Method)
+     */
+    HandlerDescriptor(Method method, InvokerStrategy invokerStrategy) {
+        this(method, invokerStrategy, method == null ? null : method.getAnnotation(Subscribe.class));
+    }
+
+    private HandlerDescriptor(Method method, InvokerStrategy invokerStrategy, Subscribe annotation) {
+        this(method, invokerStrategy, annotation, Signature.parse(method, annotation), null, null, null);
+    }
+
+    /**
+     * Takes method, its parsed {@link Subscribe} parameters and invokers from the index generated at compile time
+     * @param index subscriber index of the listener class
+     * @param i index of event handling method
+     * @param invokerStrategy strategy used for parts the index doesn't provide
+     * @throws NoSuchMethodException if class has changed since index was generated
+     */
+    private HandlerDescriptor(SubscriberIndex index, int i, InvokerStrategy invokerStrategy)
+            throws NoSuchMethodException {
+        this(index.getMethod(i), invokerStrategy, index.getSubscribe(i),
+             new Signature(index.getSourceParameter(i), index.getEventParameter(i), index.getEventType(i)),
+             index.getInvoker(i), index.getFilter(i), index.getFilterInvoker(i));
+    }
+
+    /**
+     * Validates {@link Subscribe} parameters, binds invokers that are not supplied
+     * @param method event handling method
+     * @param invokerStrategy strategy that defines how method is invoked
+     * @param annotation parameters of the handler
+     * @param signature positions of the arguments and type of events
+     * @param invoker invoker generated for the method or null
+     * @param filter filter instance created by generated code or null
+     * @param filterInvoker invoker of the filter method generated for the method or null
+     */
+    private HandlerDescriptor(Method method, InvokerStrategy invokerStrategy, Subscribe annotation, Signature signature,
+                              HandlerInvoker invoker, EventFilter filter, HandlerInvoker filterInvoker) {
+        if (invokerStrategy == null) throw new IllegalArgumentException("Invoker strategy is null");
+
+        this.method = method;
+        this.sourceParameter = signature.sourceParameter;
+        this.eventParameter = signature.eventParameter;
+        this.eventType = signature.eventType;
+
+        this.serial = annotation.serial();
+        this.conflate = annotation.conflate();
+        this.priority = annotation.priority();
+        this.inline = annotation.inline();
+        if (inline && serial) {
+            throw new IllegalArgumentException("Inline handler can't be serial");
+        }
+        this.timeout = annotation.timeout();
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout is negative: " + timeout);
+        }
+        this.batchSize = annotation.batchSize();
+        this.batchDelay = annotation.batchDelay();
+        if (batchSize > 0) {
+            if (serial) {
+                throw new IllegalArgumentException("Batch handler can't be serial");
+            }
+            if (conflate) {
+                throw new IllegalArgumentException("Batch handler can't be conflated");
+            }
+            if (inline) {
+                throw new IllegalArgumentException("Batch handler can't be inline");
+            }
+        }
+
+        if (invoker == null) {
+            invoker = invokerStrategy.createInvoker(method, eventParameter, sourceParameter);
+        }
+        this.invoker = invoker;
+
+        boolean hasFilterMethod = !annotation.filterMethod().isEmpty();
+        if (annotation.filter() != EventFilter.class) {
+            if (hasFilterMethod) {
+                throw new IllegalArgumentException("Either filter or filterMethod can be used, not both");
+            }
+            this.filter = filter != null ? filter : createFilter(annotation.filter());
+            this.filterInvoker = null;
+        } else if (hasFilterMethod) {
+            if (filterInvoker == null) {
+                Method filterMethod = getFilterMethod(method.getDeclaringClass(), annotation.filterMethod(), eventType);
+                filterInvoker = invokerStrategy.createInvoker(filterMethod, 0, -1);
+            }
+            this.filter = null;
+            this.filterInvoker = filterInvoker;
+        } else {
+            this.filter = null;
+            this.filterInvoker = null;
+        }
+    }
+
+    private static EventFilter createFilter(Class<? extends EventFilter> filterClass) {
+        try {
+            return filterClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalArgumentException("Failed to instantiate filter " + filterClass.getName(), ex);
+        }
+    }
+
+    /**
+     * Looks for public method of the listener class that accepts event and returns boolean
+     */
+    private static Method getFilterMethod(Class clazz, String name, Class eventType) {
+        for (Method m : clazz.getMethods()) {
+            Class[] args = m.getParameterTypes();
+            if (m.getName().equals(name) && args.length == 1 && args[0].isAssignableFrom(eventType)
+                && (m.getReturnType() == boolean.class || m.getReturnType() == Boolean.class)) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Filter method " + name + "(" + eventType.getName() + ")" +
+                                           " returning boolean not found in " + clazz.getName());
+    }
+
+    /**
+     * Evaluates filter of the handler
+     * @param target listener
+     * @param event published event
+     * @return true if handler should be notified of the event
+     * @throws Throwable exception produced by filter
+     */
+    boolean accepts(Object target, Object event) throws Throwable {
+        if (filter != null) return filter.accept(event);
+        return Boolean.TRUE.equals(filterInvoker.invoke(target, event, null));
+    }
+
+    /**
+     * Returns descriptors of all methods of the class marked with {@link Subscribe}, cached per class
+     * @param clazz listener class
+     * @param invokerStrategy strategy that defines how methods are invoked
+     * @return shared array of descriptors, must not be modified
+     */
+    static HandlerDescriptor[] forClass(Class clazz, InvokerStrategy invokerStrategy) {
+        if (invokerStrategy == null) throw new IllegalArgumentException("Invoker strategy is null");
+        return CACHE.get(invokerStrategy).get(clazz);
+    }
+
+    private static HandlerDescriptor[] resolve(Class clazz, InvokerStrategy invokerStrategy) {
+        SubscriberIndex index = loadIndex(clazz);
+        if (index != null) {
+            try {
+                HandlerDescriptor[] descriptors = new HandlerDescriptor[index.size()];
+                for (int i = 0; i < descriptors.length; i++) {
+                    descriptors[i] = new HandlerDescriptor(index, i, invokerStrategy);
+                }
+                return descriptors;
+            } catch (NoSuchMethodException ex) {
+                LOG.log(Level.WARNING, "Subscriber index of " + clazz + " is outdated, using reflection", ex);
+            }
+        }
+
+        List<HandlerDescriptor> descriptors = new ArrayList<>();
+        for (Method m : clazz.getMethods()) {
+            for (Annotation a : m.getAnnotations()) {
+                if (Subscribe.class.equals(a.annotationType())) {
+                    descriptors.add(new HandlerDescriptor(m, invokerStrategy));
+                }
+            }
+        }
+        return descriptors.isEmpty() ? NO_DESCRIPTORS : descriptors.toArray(NO_DESCRIPTORS);
+    }
+
+    /**
+     * Loads index generated for the class by {@link com.elusive_code.newsboy.processor.SubscribeProcessor}
+     * @param clazz listener class
+     * @return index or null if there is none
+     */
+    private static SubscriberIndex loadIndex(Class clazz) {
+        ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader == null) return null;
+        try {
+            Class indexClass = Class.forName(clazz.getName() + SubscriberIndex.SUFFIX, true, classLoader);
+            return (SubscriberIndex) indexClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException ex) {
+            return null;
+        } catch (Exception | LinkageError ex) {
+            LOG.log(Level.WARNING, "Failed to load subscriber index of " + clazz + ", using reflection", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Positions of event and event source arguments of the method and type of events it handles
+     */
+    private static final class Signature {
+        private final int   sourceParameter;
+        private final int   eventParameter;
+        private final Class eventType;
+
+        private Signature(int sourceParameter, int eventParameter, Class eventType) {
+            this.sourceParameter = sourceParameter;
+            this.eventParameter = eventParameter;
+            this.eventType = eventType;
+        }
+
+        /**
+         * Determines signature of the method with reflection
+         * @param method event handling method
+         * @param annotation its {@link Subscribe} annotation
+         * @return signature of the method
+         */
+        private static Signature parse(Method method, Subscribe annotation) {
+            if (method == null) throw new IllegalArgumentException("Method is null");
+
+            int sourceParameter = annotation.eventSourceParameter();
+            if (sourceParameter < 0) sourceParameter = -1;
+
+            //if method has no arguments it will be subscribed to all events
+            Class[] args = method.getParameterTypes();
+
+            if (sourceParameter >= args.length) {
+                throw new IllegalArgumentException(
+                        "eventSourceParameter is '"+sourceParameter+"' but method has "+args.length+" arguments");
+            }
+
+            if (sourceParameter<0){
+                //attempting to determine source parameter when not specified in annotation
+                for (int i=0; i<args.length; i++) {
+                    Class c = args[i];
+                    if (EventSource.class.isAssignableFrom(c)){
+                        if (sourceParameter<0) {
+                            sourceParameter = i;
+                        } else {
+                            throw new IllegalArgumentException(
+                                    "Ambiguous EventSource parameters: #"+sourceParameter+" and #"+i);
+                        }
+                    }
+                }
+                if (args.length == 1 && sourceParameter == 0 && annotation.eventSourceParameter() <= -2) {
+                    throw new IllegalArgumentException("Ambiguous EventSource, not sure if event type or source");
+                }
+            }
+
+            if (args.length >= 3 || args.length == 2 && sourceParameter < 0){
+                throw new IllegalArgumentException("Method has too many arguments, don't know for which to subscribe");
+            }
+
+            int eventParameter;
+            if (args.length == 2) {
+                eventParameter = args.length - 1 - sourceParameter;
+            } else if (args.length == 1) {
+                eventParameter = -1 - sourceParameter;
+            } else {
+                eventParameter = -1;
+            }
+
+            Class eventType;
+            if (annotation.batchSize() > 0) {
+                if (eventParameter < 0 || !args[eventParameter].isAssignableFrom(List.class)) {
+                    throw new IllegalArgumentException("Batch handler should have java.util.List argument for events");
+                }
+                eventType = getBatchEventType(method, eventParameter, annotation);
+            } else if (eventParameter>=0){
+                eventType = args[eventParameter];
+            } else {
+                eventType = annotation.eventType();
+            }
+            return new Signature(sourceParameter, eventParameter, eventType);
+        }
+    }
+
+    /**
+     * Determines type of events from generic type of the batch argument, like {@code List<EventType>}
+     */
+    private static Class getBatchEventType(Method method, int eventParameter, Subscribe annotation) {
+        Type type = method.getGenericParameterTypes()[eventParameter];
+        if (type instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (elementType instanceof Class) {
+                return (Class) elementType;
+            }
+            if (elementType instanceof ParameterizedType) {
+                return (Class) ((ParameterizedType) elementType).getRawType();
+            }
+        }
+        return annotation.eventType();
+    }
+
+    Method getMethod() {
+        return method;
+    }
+
+    Class getEventType() {
+        return eventType;
+    }
+
+    int getSourceParameter() {
+        return sourceParameter;
+    }
+
+    int getEventParameter() {
+        return eventParameter;
+    }
+
+    HandlerInvoker getInvoker() {
+        return invoker;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    long getBatchDelay() {
+        return batchDelay;
+    }
+
+    boolean isSerial() {
+        return serial;
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    boolean isInline() {
+        return inline;
+    }
+
+    Priority getPriority() {
+        return priority;
+    }
+
+    boolean isConflate() {
+        return conflate;
+    }
+
+    boolean hasFilter() {
+        return filter != null || filterInvoker != null;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Invokes event handling method that was bound to it once, at subscription time.</p>
+ * <p>Implementations know which method arguments receive event and event source,
+ * so invocation doesn't need to inspect the method.</p>
+ *
+ * @see com.elusive_code.newsboy.InvokerStrategy
+ * @see com.elusive_code.newsboy.WeakEventHandler
+ */
+public interface HandlerInvoker {
+
+    /**
+     * Invokes event handling method
+     * @param target listener on which method is invoked
+     * @param event event being notified of
+     * @param source event source that produced event
+     * @return result returned by event handling method
+     * @throws Throwable exception produced by listener
+     */
+    Object invoke(Object target, Object event, EventSource source) throws Throwable;
+
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Registry of event handlers used by {@link com.elusive_code.newsboy.AsyncEventService}.</p>
+ * <p>
+ *     Modifications (subscribing and unsubscribing) are serialized with a lock,
+ *     while lookups performed on publishing take no locks at all:
+ *     handlers of every event type are stored in concurrent sets, and resolved handlers
+ *     of every published event class are cached as immutable arrays in the dispatch table.
+ *     Every entry is indexed by all classes and interfaces its handlers were collected from,
+ *     so modification evicts only entries of event classes handled by changed handlers without scanning the table,
+ *     other classes stay cached and table never keeps handlers of unsubscribed listeners.
+ *     Lookup that misses the table computes entry without the lock and discards it
+ *     if registry version has changed meanwhile, since modification could have missed it.
+ *     Table and index refer to classes weakly, so they can be unloaded.
+ * </p>
+ * <p>
+ *     Handlers of listeners claimed by GC are expunged in background:
+ *     every listener is tracked by a weak reference registered in the reference queue,
+ *     which is drained by a daemon thread shared by all registries.
+ *     Per-class sets that become empty are removed, so registry size stays proportional to live listeners.
+ * </p>
+ */
+class HandlerRegistry {
+
+    private static final Logger LOG = Logger.getLogger(HandlerRegistry.class.getName());
+
+    static final WeakEventHandler[] NO_HANDLERS = new WeakEventHandler[0];
+
+    /**
+     * <p>Subscribed listeners. Used for faster unsubscribing</p>
+     * <p>Key - listener object, Value - reference that tracks listener and its event handlers</p>
+     * <p>Guarded by {@link #lock}</p>
+     */
+    private final WeakHashMap<Object, ListenerReference> listeners = new WeakHashMap<>();
+
+    /**
+     * <p>References of subscribed listeners, keeps them reachable until they are enqueued</p>
+     * <p>Guarded by {@link #lock}</p>
+     */
+    private final Set<ListenerReference> references = new HashSet<>();
+
+    /**
+     * <p>Listeners subscribed with strong references, they are not tracked by reference queue</p>
+     * <p>Key - listener object, Value - its event handlers</p>
+     * <p>Guarded by {@link #lock}</p>
+     */
+    private final Map<Object, Collection<WeakEventHandler>> strongListeners = new HashMap<>();
+
+    /**
+     * <p>Listeners by event class, used for faster publishing</p>
+     * <p>Key - class of event to handle, Value - set of event handlers from all listeners</p>
+     */
+    private final ConcurrentMap<Class, Set<WeakEventHandler>> handlersByClass = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Dispatch table used for publishing</p>
+     * <p>Key - weak reference to class of published event, Value - handlers of that class and all its parents and interfaces</p>
+     * <p>Entries are put by publishers and evicted by modifications, see {@link #version}</p>
+     */
+    private final ConcurrentMap<Object, Dispatch> dispatchTable = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Index of dispatch table used for eviction</p>
+     * <p>Key - weak reference to class or interface, Value - entries of event classes that extend or implement it</p>
+     * <p>Sets are removed only when their class is unloaded</p>
+     */
+    private final ConcurrentMap<Object, Set<Dispatch>> dependents = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented by every modification after handler sets have changed and before dispatch table is evicted.
+     * Entry computed while it has changed is discarded by publisher that put it
+     */
+    private volatile long version;
+
+    /**
+     * Keys of dispatch table and its index which classes were unloaded
+     */
+    private final ReferenceQueue<Class> unloadedClasses = new ReferenceQueue<>();
+
+    /**
+     * Lock for synchronizing modifications, lookups don't use it
+     */
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * Monitor notified of collected listeners
+     */
+    private volatile EventServiceMonitor monitor = EventServiceMonitor.NOOP;
+
+    void setMonitor(EventServiceMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * <p>Registers handlers of the listener.</p>
+     * <p>If listener is already registered, its previous handlers are replaced.</p>
+     * @param listener listener object
+     * @param handlers event handlers of the listener
+     * @param strong whether listener is subscribed with strong reference
+     */
+    public void add(Object listener, Collection<WeakEventHandler> handlers, boolean strong) {
+        lock.lock();
+        try {
+            removeListener(listener);
+            if (strong) {
+                strongListeners.put(listener, handlers);
+            } else {
+                ListenerReference reference = new ListenerReference(listener, handlers, this);
+                listeners.put(listener, reference);
+                references.add(reference);
+            }
+            for (WeakEventHandler handler : handlers) {
+                Set<WeakEventHandler> set = handlersByClass.get(handler.getEventType());
+                if (set == null) {
+                    set = Collections.newSetFromMap(new ConcurrentHashMap<WeakEventHandler, Boolean>());
+                    handlersByClass.put(handler.getEventType(), set);
+                }
+                set.add(handler);
+            }
+            evict(handlers);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all handlers of the listener
+     * @param listener listener object
+     * @return removed handlers or empty collection if listener wasn't registered
+     */
+    public Collection<WeakEventHandler> remove(Object listener) {
+        lock.lock();
+        try {
+            Collection<WeakEventHandler> handlers = removeListener(listener);
+            return handlers == null ? Collections.<WeakEventHandler>emptyList() : handlers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes listener and its handlers, whether it is subscribed with weak or strong reference.
+     * Must be called under {@link #lock}
+     * @param listener listener object
+     * @return removed handlers or null if listener wasn't registered
+     */
+    private Collection<WeakEventHandler> removeListener(Object listener) {
+        ListenerReference reference = listeners.remove(listener);
+        if (reference != null) {
+            references.remove(reference);
+            removeHandlers(reference.handlers);
+            return reference.handlers;
+        }
+        Collection<WeakEventHandler> handlers = strongListeners.remove(listener);
+        if (handlers != null) {
+            removeHandlers(handlers);
+        }
+        return handlers;
+    }
+
+    /**
+     * <p>Returns all handlers that should be notified of the event of supplied class,
+     * i.e. handlers subscribed for that class or any of its parents and interfaces.</p>
+     * <p>
+     *     Result is cached per event class in the dispatch table,
+     *     so class hierarchy is walked only for the first event of its class
+     *     published after subscriptions have changed. No lookup takes the lock.
+     *     Returned array is shared and must not be modified.
+     * </p>
+     * @param eventClass class of the published event
+     * @return array of handlers, may contain handlers which listeners were already claimed by GC
+     */
+    public WeakEventHandler[] resolve(Class eventClass) {
+        ClassLookup lookup = new ClassLookup(eventClass);
+        Dispatch dispatch = dispatchTable.get(lookup);
+        if (dispatch != null && dispatch.valid) return dispatch.handlers;
+
+        expungeUnloaded();
+        long stamp = version;
+        Set<Class> hierarchy = EventServiceHelper.collectClassHierarchy(eventClass);
+        ArrayList<WeakEventHandler> result = new ArrayList<>();
+        List<Set<Dispatch>> dependencies = new ArrayList<>(hierarchy.size());
+        for (Class clazz : hierarchy) {
+            Set<WeakEventHandler> set = handlersByClass.get(clazz);
+            if (set != null) {
+                result.addAll(set);
+            }
+            dependencies.add(dependentsOf(clazz));
+        }
+        WeakEventHandler[] handlers = result.isEmpty() ? NO_HANDLERS : result.toArray(NO_HANDLERS);
+        dispatch = new Dispatch(new ClassKey(eventClass, unloadedClasses), handlers, dependencies);
+        dispatchTable.put(dispatch.key, dispatch);
+        for (Set<Dispatch> set : dependencies) {
+            set.add(dispatch);
+        }
+        //modification that started meanwhile could have evicted index before entry was added
+        if (version != stamp || !dispatch.valid) invalidate(dispatch);
+        return handlers;
+    }
+
+    /**
+     * Returns set of dispatch entries that depend on handlers of the class, creates it if absent
+     * @param clazz class or interface
+     * @return set of dependent entries
+     */
+    private Set<Dispatch> dependentsOf(Class clazz) {
+        Set<Dispatch> set = dependents.get(new ClassLookup(clazz));
+        if (set == null) {
+            Set<Dispatch> created = Collections.newSetFromMap(new ConcurrentHashMap<Dispatch, Boolean>());
+            set = dependents.putIfAbsent(new ClassKey(clazz, unloadedClasses), created);
+            if (set == null) set = created;
+        }
+        return set;
+    }
+
+    /**
+     * Removes entry from dispatch table and its index. Entry may be invalidated concurrently several times
+     * @param dispatch entry to remove
+     */
+    private void invalidate(Dispatch dispatch) {
+        dispatch.valid = false;
+        dispatchTable.remove(dispatch.key, dispatch);
+        for (Set<Dispatch> set : dispatch.dependencies) {
+            set.remove(dispatch);
+        }
+    }
+
+    /**
+     * Counts registered handlers, including ones which listeners were claimed by GC but not yet expunged
+     * @return amount of handlers
+     */
+    public int handlerCount() {
+        int count = 0;
+        for (Set<WeakEventHandler> handlers : handlersByClass.values()) {
+            count += handlers.size();
+        }
+        return count;
+    }
+
+    /**
+     * Removes handlers of the listener claimed by GC
+     * @param reference cleared reference of the listener
+     */
+    void expunge(ListenerReference reference) {
+        lock.lock();
+        try {
+            //listener could have been unsubscribed or subscribed again
+            if (!references.remove(reference)) return;
+            removeHandlers(reference.handlers);
+        } finally {
+            lock.unlock();
+        }
+        monitor.listenerCollected();
+    }
+
+    /**
+     * <p>Removes handler which listener was claimed by GC.</p>
+     * <p>Doesn't block, so it may be called during publishing.
+     * Per-class set is left even if empty, and dispatch table keeps the handler (it only holds weak reference),
+     * both are cleaned when listener reference is expunged</p>
+     * @param handler handler to remove
+     */
+    public void removeCollected(WeakEventHandler handler) {
+        Set<WeakEventHandler> handlers = handlersByClass.get(handler.getEventType());
+        if (handlers != null) {
+            handlers.remove(handler);
+        }
+    }
+
+    /**
+     * Removes handlers from per-class sets, removes sets that become empty. Must be called under {@link #lock}
+     * @param handlers handlers to remove
+     */
+    private void removeHandlers(Collection<WeakEventHandler> handlers) {
+        for (WeakEventHandler handler : handlers) {
+            Set<WeakEventHandler> set = handlersByClass.get(handler.getEventType());
+            if (set != null) {
+                set.remove(handler);
+                if (set.isEmpty()) {
+                    handlersByClass.remove(handler.getEventType(), set);
+                }
+            }
+        }
+        evict(handlers);
+    }
+
+    /**
+     * Evicts dispatch table entries of event classes that are handled by any of the handlers,
+     * i.e. subclasses of their event types, found by the index. Must be called under {@link #lock}
+     * @param handlers added or removed handlers
+     */
+    private void evict(Collection<WeakEventHandler> handlers) {
+        if (handlers.isEmpty()) return;
+        version++;
+        expungeUnloaded();
+        Set<Class> eventTypes = new HashSet<>();
+        for (WeakEventHandler handler : handlers) {
+            eventTypes.add(handler.getEventType());
+        }
+        for (Class eventType : eventTypes) {
+            Set<Dispatch> set = dependents.get(new ClassLookup(eventType));
+            if (set != null) {
+                for (Dispatch dispatch : set) {
+                    invalidate(dispatch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes dispatch table entries and index sets of unloaded classes
+     */
+    private void expungeUnloaded() {
+        Reference<? extends Class> key;
+        while ((key = unloadedClasses.poll()) != null) {
+            Dispatch dispatch = dispatchTable.remove(key);
+            if (dispatch != null) {
+                invalidate(dispatch);
+            }
+            dependents.remove(key);
+        }
+    }
+
+    /**
+     * Entry of dispatch table
+     */
+    private static class Dispatch {
+        private final ClassKey                key;
+        private final WeakEventHandler[]      handlers;
+        /**
+         * Index sets entry was added to, one per class of event hierarchy
+         */
+        private final List<Set<Dispatch>>     dependencies;
+        /**
+         * Cleared when entry is evicted, so publisher that is adding it concurrently would remove it as well
+         */
+        private volatile boolean              valid = true;
+
+        private Dispatch(ClassKey key, WeakEventHandler[] handlers, List<Set<Dispatch>> dependencies) {
+            this.key = key;
+            this.handlers = handlers;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * Weak reference of the subscribed listener, enqueued when listener is claimed by GC
+     */
+    static class ListenerReference extends WeakReference<Object> {
+        private final Collection<WeakEventHandler> handlers;
+        private final HandlerRegistry              registry;
+
+        private ListenerReference(Object listener, Collection<WeakEventHandler> handlers, HandlerRegistry registry) {
+            super(listener, Cleaner.QUEUE);
+            this.handlers = handlers;
+            this.registry = registry;
+        }
+    }
+
+    /**
+     * Key of dispatch table and its index, refers to class weakly
+     */
+    private static class ClassKey extends WeakReference<Class> {
+        private final int hash;
+
+        private ClassKey(Class eventClass, ReferenceQueue<Class> queue) {
+            super(eventClass, queue);
+            this.hash = System.identityHashCode(eventClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            //cleared key equals only to itself, so it could be removed
+            Class clazz = get();
+            return clazz != null && o instanceof ClassKey && ((ClassKey) o).get() == clazz;
+        }
+    }
+
+    /**
+     * Key used to look up dispatch table without creating weak reference
+     */
+    private static class ClassLookup {
+        private final Class eventClass;
+
+        private ClassLookup(Class eventClass) {
+            this.eventClass = eventClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(eventClass);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ClassKey && ((ClassKey) o).get() == eventClass;
+        }
+    }
+
+    /**
+     * <p>Daemon thread that expunges handlers of collected listeners.</p>
+     * <p>Started when first listener is subscribed</p>
+     */
+    private static class Cleaner extends Thread {
+
+        private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+        static {
+            new Cleaner().start();
+        }
+
+        private Cleaner() {
+            super("NewsBoy reference cleaner");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    ListenerReference reference = (ListenerReference) QUEUE.remove();
+                    reference.registry.expunge(reference);
+                } catch (InterruptedException ex) {
+                    return;
+                } catch (Throwable ex) {
+                    LOG.log(Level.WARNING, "Failed to expunge collected listener", ex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Snapshot of latency statistics of event handling method.</p>
+ * <p>
+ *     Latencies are counted in histogram with power of two buckets:
+ *     bucket 0 counts invocations shorter than 1 microsecond,
+ *     bucket {@code i} counts ones that took from 2<sup>i-1</sup> to 2<sup>i</sup> microseconds,
+ *     last bucket counts everything longer.
+ *     So percentiles are upper bounds of their buckets, precise up to a factor of two.
+ * </p>
+ *
+ * @see JmxEventServiceMonitor
+ */
+public class HandlerStatistics {
+
+    private String method;
+    private long   invocations;
+    private long   failures;
+    private double meanMillis;
+    private double maxMillis;
+    private double medianMillis;
+    private double percentile99Millis;
+    private long[] histogram;
+
+    public HandlerStatistics(String method, long invocations, long failures, double meanMillis, double maxMillis,
+                             double medianMillis, double percentile99Millis, long[] histogram) {
+        this.method = method;
+        this.invocations = invocations;
+        this.failures = failures;
+        this.meanMillis = meanMillis;
+        this.maxMillis = maxMillis;
+        this.medianMillis = medianMillis;
+        this.percentile99Millis = percentile99Millis;
+        this.histogram = histogram;
+    }
+
+    /**
+     * @return event handling method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return amount of invocations
+     */
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * @return amount of failed invocations
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return average invocation time in milliseconds
+     */
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    /**
+     * @return maximum invocation time in milliseconds
+     */
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * @return upper bound of median invocation time in milliseconds
+     */
+    public double getMedianMillis() {
+        return medianMillis;
+    }
+
+    /**
+     * @return upper bound of 99th percentile of invocation time in milliseconds
+     */
+    public double getPercentile99Millis() {
+        return percentile99Millis;
+    }
+
+    /**
+     * @return amount of invocations in every histogram bucket
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "HandlerStatistics{ " + method +
+               " invocations=" + invocations +
+               " failures=" + failures +
+               " mean=" + meanMillis + "ms" +
+               " max=" + maxMillis + "ms" +
+               " p50=" + medianMillis + "ms" +
+               " p99=" + percentile99Millis + "ms }";
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Reports notification which event handling method has run longer than its timeout.</p>
+ * <p>Its stack trace is the one of the thread running the handler at the moment timeout expired,
+ * so it shows where handler got stuck.
+ * If service fails notifications on timeout, {@link NotificationFuture} fails with this exception,
+ * though handler itself is not interrupted.</p>
+ *
+ * @see Subscribe#timeout()
+ * @see AsyncEventService#setFailOnTimeout(boolean)
+ */
+public class HandlerTimeoutException extends IllegalStateException {
+
+    public HandlerTimeoutException(WeakEventHandler handler, long timeout) {
+        super("Handler " + handler + " didn't complete in " + timeout + " ms");
+    }
+}
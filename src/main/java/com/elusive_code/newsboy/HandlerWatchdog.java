@@ -0,0 +1,120 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Watches deadlines of running notifications of handlers with timeout.</p>
+ * <p>
+ *     Notifications register themselves while their handler runs, and single periodic task
+ *     scans them, so handling an event costs no timer scheduling and doesn't contend on timer queue.
+ *     Scan period is a quarter of the shortest timeout seen, within {@link #MIN_PERIOD} and {@link #MAX_PERIOD},
+ *     so deadline is noticed with that precision.
+ *     Scan stops when it finds no running notifications, and the next watched one starts it again
+ *     with the period of its own timeout, so period grows back once handlers with short timeouts are idle.
+ * </p>
+ *
+ * @see Subscribe#timeout()
+ * @see AsyncEventService#setHandlerTimeout(long)
+ */
+class HandlerWatchdog implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger(HandlerWatchdog.class.getName());
+
+    static final long MIN_PERIOD = 10;
+    static final long MAX_PERIOD = 1000;
+
+    private final ScheduledExecutorService timer;
+    private final Set<EventNotifierTask>   running =
+            Collections.newSetFromMap(new ConcurrentHashMap<EventNotifierTask, Boolean>());
+
+    private volatile long      period = Long.MAX_VALUE;
+    private ScheduledFuture<?> scan;
+
+    HandlerWatchdog(ScheduledExecutorService timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * Starts watching notification, its deadline must be already set
+     * @param task running notification
+     * @param timeout its timeout in milliseconds
+     */
+    void watch(EventNotifierTask task, long timeout) {
+        long required = Math.max(MIN_PERIOD, Math.min(MAX_PERIOD, timeout / 4));
+        //added before period is read, so scan that is stopping either sees the task or is restarted
+        running.add(task);
+        if (required < period) reschedule(required);
+    }
+
+    /**
+     * Stops watching notification when its handler returns
+     * @param task finished notification
+     */
+    void unwatch(EventNotifierTask task) {
+        running.remove(task);
+    }
+
+    private synchronized void reschedule(long required) {
+        if (required >= period) return;
+        if (scan != null) scan.cancel(false);
+        period = required;
+        scan = timer.scheduleWithFixedDelay(this, required, required, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the scan if there are no running notifications
+     */
+    private synchronized void stopIfIdle() {
+        long current = period;
+        period = Long.MAX_VALUE;
+        if (!running.isEmpty()) {
+            //notification was added concurrently, it may not have seen the reset
+            period = current;
+            return;
+        }
+        if (scan != null) scan.cancel(false);
+        scan = null;
+    }
+
+    @Override
+    public void run() {
+        if (running.isEmpty()) {
+            stopIfIdle();
+            return;
+        }
+        long now = System.nanoTime();
+        for (EventNotifierTask task : running) {
+            try {
+                //overdue notification is reported once
+                if (task.checkDeadline(now)) running.remove(task);
+            } catch (Throwable ex) {
+                //periodic scan stops if exception leaves it
+                running.remove(task);
+                LOG.log(Level.WARNING, "Failed to check deadline of " + task, ex);
+            }
+        }
+    }
+}
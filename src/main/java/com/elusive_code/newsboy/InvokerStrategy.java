@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Defines how event handling methods are invoked.</p>
+ * <ul>
+ *     <li>{@link #REFLECTION} - uses {@link java.lang.reflect.Method#invoke(Object, Object...)}</li>
+ *     <li>{@link #METHOD_HANDLE} - binds method into {@link java.lang.invoke.MethodHandle} at subscription time,
+ *     so invocation neither allocates arguments array nor goes through reflection checks.
+ *     Falls back to {@link #REFLECTION} if method handle can't be created.</li>
+ * </ul>
+ *
+ * @see com.elusive_code.newsboy.AsyncEventService#setInvokerStrategy(InvokerStrategy)
+ */
+public enum InvokerStrategy {
+
+    REFLECTION {
+        @Override
+        public HandlerInvoker createInvoker(Method method, int eventParameter, int sourceParameter) {
+            return new ReflectionInvoker(method, eventParameter, sourceParameter);
+        }
+    },
+
+    METHOD_HANDLE {
+        @Override
+        public HandlerInvoker createInvoker(Method method, int eventParameter, int sourceParameter) {
+            try {
+                return new MethodHandleInvoker(method, eventParameter, sourceParameter);
+            } catch (IllegalAccessException ex) {
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.log(Level.FINE, "Can't create method handle for " + method + ", using reflection", ex);
+                }
+                return REFLECTION.createInvoker(method, eventParameter, sourceParameter);
+            }
+        }
+    };
+
+    private static final Logger LOG = Logger.getLogger(InvokerStrategy.class.getName());
+
+    /**
+     * Binds event handling method
+     * @param method event handling method
+     * @param eventParameter index of the event argument, or -1 if method doesn't receive event
+     * @param sourceParameter index of the event source argument, or -1 if method doesn't receive source
+     * @return invoker of the method
+     */
+    public abstract HandlerInvoker createInvoker(Method method, int eventParameter, int sourceParameter);
+
+    private static class ReflectionInvoker implements HandlerInvoker {
+
+        private static final Object[] NO_ARGS = new Object[0];
+
+        private final Method method;
+        private final int    parameterCount;
+        private final int    eventParameter;
+        private final int    sourceParameter;
+
+        private ReflectionInvoker(Method method, int eventParameter, int sourceParameter) {
+            this.method = method;
+            this.parameterCount = method.getParameterTypes().length;
+            this.eventParameter = eventParameter;
+            this.sourceParameter = sourceParameter;
+        }
+
+        @Override
+        public Object invoke(Object target, Object event, EventSource source) throws Throwable {
+            Object[] args = NO_ARGS;
+            if (parameterCount > 0) {
+                args = new Object[parameterCount];
+                if (eventParameter >= 0) args[eventParameter] = event;
+                if (sourceParameter >= 0) args[sourceParameter] = source;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    private static class MethodHandleInvoker implements HandlerInvoker {
+
+        /**
+         * (Object target, Object event, Object source) -> Object
+         */
+        private static final MethodType INVOKER_TYPE =
+                MethodType.methodType(Object.class, Object.class, Object.class, Object.class);
+
+        private final MethodHandle handle;
+
+        private MethodHandleInvoker(Method method, int eventParameter, int sourceParameter)
+                throws IllegalAccessException {
+
+            MethodHandle h = MethodHandles.publicLookup().unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                h = MethodHandles.dropArguments(h, 0, Object.class);
+            }
+            //erasing types: (Listener, P1, P2)R -> (Object, Object, Object)Object
+            h = h.asType(h.type().generic());
+
+            //mapping method arguments to (target, event, source)
+            int[] reorder = new int[h.type().parameterCount()];
+            reorder[0] = 0;
+            if (eventParameter >= 0) reorder[eventParameter + 1] = 1;
+            if (sourceParameter >= 0) reorder[sourceParameter + 1] = 2;
+            this.handle = MethodHandles.permuteArguments(h, INVOKER_TYPE, reorder);
+        }
+
+        @Override
+        public Object invoke(Object target, Object event, EventSource source) throws Throwable {
+            return (Object) handle.invokeExact(target, event, (Object) source);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Monitor that collects statistics of {@link com.elusive_code.newsboy.AsyncEventService}
+ * and exposes them through JMX.</p>
+ * <p>Usage:</p>
+ * <pre>
+ *     JmxEventServiceMonitor monitor = new JmxEventServiceMonitor(eventService);
+ *     eventService.setMonitor(monitor);
+ *     monitor.register(new ObjectName("com.example:type=EventService"));
+ * </pre>
+ * <p>Counters are lock-free, latencies are counted in per-method histograms, see {@link HandlerStatistics}</p>
+ *
+ * @see EventServiceMXBean
+ */
+public class JmxEventServiceMonitor implements EventServiceMonitor, EventServiceMXBean {
+
+    private final AsyncEventService service;
+
+    private volatile Counters counters = new Counters();
+
+    private ObjectName objectName;
+
+    /**
+     * @param service monitored service, used to read its pool occupancy and queue depth
+     */
+    public JmxEventServiceMonitor(AsyncEventService service) {
+        if (service == null) throw new IllegalArgumentException("Service is null");
+        this.service = service;
+    }
+
+    /**
+     * Registers monitor in the platform MBean server
+     * @param name name of the MBean
+     * @throws JMException if registration fails
+     */
+    public synchronized void register(ObjectName name) throws JMException {
+        if (objectName != null) throw new IllegalStateException("Already registered as " + objectName);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        objectName = name;
+    }
+
+    /**
+     * Unregisters monitor from the platform MBean server, does nothing if it is not registered
+     * @throws JMException if unregistration fails
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public void eventPublished(Class eventType, int notifications) {
+        Counters counters = this.counters;
+        counters.published.incrementAndGet();
+        counters.notifications.addAndGet(notifications);
+        AtomicLong counter = counters.publishedByType.get(eventType);
+        if (counter == null) {
+            counter = new AtomicLong();
+            AtomicLong existing = counters.publishedByType.putIfAbsent(eventType, counter);
+            if (existing != null) counter = existing;
+        }
+        counter.incrementAndGet();
+    }
+
+    @Override
+    public void notificationCompleted(Method method, long waitNanos, long durationNanos, Throwable failure) {
+        Counters counters = this.counters;
+        if (failure != null) counters.failures.incrementAndGet();
+        counters.waited.incrementAndGet();
+        counters.waitNanos.addAndGet(waitNanos);
+        long current;
+        while (waitNanos > (current = counters.maxWaitNanos.get())) {
+            if (counters.maxWaitNanos.compareAndSet(current, waitNanos)) break;
+        }
+
+        LatencyHistogram histogram = counters.histograms.get(method);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = counters.histograms.putIfAbsent(method, histogram);
+            if (existing != null) histogram = existing;
+        }
+        histogram.record(durationNanos, failure != null);
+    }
+
+    @Override
+    public void listenerCollected() {
+        counters.collected.incrementAndGet();
+    }
+
+    @Override
+    public long getPublishedEvents() {
+        return counters.published.get();
+    }
+
+    @Override
+    public Map<String, Long> getPublishedEventsByType() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Class, AtomicLong> entry : counters.publishedByType.entrySet()) {
+            result.put(entry.getKey().getName(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    @Override
+    public long getNotifications() {
+        return counters.notifications.get();
+    }
+
+    @Override
+    public double getAverageFanOut() {
+        Counters counters = this.counters;
+        long published = counters.published.get();
+        return published == 0 ? 0 : counters.notifications.get() / (double) published;
+    }
+
+    @Override
+    public long getFailures() {
+        return counters.failures.get();
+    }
+
+    @Override
+    public long getCollectedListeners() {
+        return counters.collected.get();
+    }
+
+    @Override
+    public double getAverageQueueWaitMillis() {
+        Counters counters = this.counters;
+        long waited = counters.waited.get();
+        return waited == 0 ? 0 : counters.waitNanos.get() / (double) waited / 1000000;
+    }
+
+    @Override
+    public double getMaxQueueWaitMillis() {
+        return counters.maxWaitNanos.get() / 1000000d;
+    }
+
+    @Override
+    public long getQueueDepth() {
+        return service.getQueueDepth();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return service.getActiveThreadCount();
+    }
+
+    @Override
+    public int getParallelism() {
+        return service.getParallelism();
+    }
+
+    @Override
+    public int getHandlerCount() {
+        return service.getHandlerCount();
+    }
+
+    @Override
+    public List<HandlerStatistics> getHandlerStatistics() {
+        List<HandlerStatistics> result = new ArrayList<>();
+        for (Map.Entry<Method, LatencyHistogram> entry : counters.histograms.entrySet()) {
+            result.add(entry.getValue().snapshot(entry.getKey().toString()));
+        }
+        Collections.sort(result, new Comparator<HandlerStatistics>() {
+            @Override
+            public int compare(HandlerStatistics s1, HandlerStatistics s2) {
+                int result = Double.compare(s2.getPercentile99Millis(), s1.getPercentile99Millis());
+                if (result != 0) return result;
+                return Double.compare(s2.getMeanMillis(), s1.getMeanMillis());
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        counters = new Counters();
+    }
+
+    /**
+     * Counters replaced as a whole on reset
+     */
+    private static class Counters {
+        private final AtomicLong published     = new AtomicLong();
+        private final AtomicLong notifications = new AtomicLong();
+        private final AtomicLong failures      = new AtomicLong();
+        private final AtomicLong collected     = new AtomicLong();
+        private final AtomicLong waited        = new AtomicLong();
+        private final AtomicLong waitNanos     = new AtomicLong();
+        private final AtomicLong maxWaitNanos  = new AtomicLong();
+
+        private final ConcurrentMap<Class, AtomicLong>        publishedByType = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Method, LatencyHistogram> histograms      = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Lock-free latency histogram of single event handling method.</p>
+ * <p>Buckets are powers of two of microseconds, see {@link HandlerStatistics}</p>
+ */
+class LatencyHistogram {
+
+    static final int BUCKETS = 32;
+
+    private final AtomicLongArray buckets  = new AtomicLongArray(BUCKETS);
+    private final AtomicLong      failures = new AtomicLong();
+    private final AtomicLong      total    = new AtomicLong();
+    private final AtomicLong      max      = new AtomicLong();
+
+    void record(long durationNanos, boolean failed) {
+        long micros = durationNanos / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        if (failed) failures.incrementAndGet();
+        total.addAndGet(durationNanos);
+        long current;
+        while (durationNanos > (current = max.get())) {
+            if (max.compareAndSet(current, durationNanos)) break;
+        }
+    }
+
+    HandlerStatistics snapshot(String method) {
+        long[] counts = new long[BUCKETS];
+        long invocations = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            invocations += counts[i];
+        }
+        double mean = invocations == 0 ? 0 : total.get() / (double) invocations / 1000000;
+        double maxMillis = max.get() / 1000000d;
+        return new HandlerStatistics(method, invocations, failures.get(), mean, maxMillis,
+                                     percentile(counts, invocations, 0.5, maxMillis),
+                                     percentile(counts, invocations, 0.99, maxMillis),
+                                     counts);
+    }
+
+    /**
+     * Upper bound of the bucket containing percentile, maximum for the last bucket
+     */
+    private static double percentile(long[] counts, long invocations, double percentile, double maxMillis) {
+        if (invocations == 0) return 0;
+        long rank = (long) Math.ceil(invocations * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min((1L << i) / 1000d, maxMillis);
+        }
+        return maxMillis;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.elusive_code.newsboy;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Queue of notifications of serial handlers of single listener.</p>
+ * <p>
+ *     Notifications are run one at a time by single draining task, no thread is dedicated to the listener.
+ *     Counter of pending notifications decides who schedules draining:
+ *     thread that added notification to empty mailbox.
+ *     To let other listeners progress, draining task yields after handling {@link #THROUGHPUT} notifications
+ *     and is scheduled again.
+ * </p>
+ *
+ * @see Subscribe#serial()
+ */
+class Mailbox {
+
+    /**
+     * Maximum amount of notifications handled by single draining task
+     */
+    static final int THROUGHPUT = 64;
+
+    private ConcurrentLinkedQueue<EventNotifierTask> queue   = new ConcurrentLinkedQueue<>();
+    private AtomicInteger                            pending = new AtomicInteger();
+
+    /**
+     * Adds notification to the mailbox, schedules draining if mailbox was empty
+     * @param task notification of serial handler
+     * @param service service that runs notifications
+     */
+    void add(EventNotifierTask task, AsyncEventService service) {
+        //enqueued before counted, so counted notifications are always in the queue
+        queue.offer(task);
+        if (pending.getAndIncrement() == 0) {
+            service.scheduleMailbox(this);
+        }
+    }
+
+    /**
+     * Handles queued notifications one by one
+     * @param service service that runs notifications
+     */
+    void drain(AsyncEventService service) {
+        for (int i = 0; i < THROUGHPUT; i++) {
+            queue.poll().quietlyInvoke();
+            if (pending.decrementAndGet() == 0) return;
+        }
+        service.scheduleMailbox(this);
+    }
+}
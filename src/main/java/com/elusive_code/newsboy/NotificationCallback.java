@@ -0,0 +1,31 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Receives completion of {@link com.elusive_code.newsboy.EventNotifierTask},
+ * so that dependent work may be scheduled without blocking a thread on joining the task.</p>
+ */
+interface NotificationCallback {
+
+    /**
+     * Invoked once, after event handling method of the task returned or failed
+     * @param task completed notification
+     */
+    void notificationCompleted(EventNotifierTask task);
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.elusive_code.newsboy;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>Executors suitable for {@link AsyncEventService#AsyncEventService(java.util.concurrent.Executor)}.</p>
+ * <p>Any other executor, e.g. {@link java.util.concurrent.ThreadPoolExecutor}, could be supplied as well.</p>
+ */
+public final class NotificationExecutors {
+
+    private static final Executor SAME_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public String toString() {
+            return "SameThreadExecutor";
+        }
+    };
+
+    private NotificationExecutors() {
+    }
+
+    /**
+     * <p>Executor that runs notifications synchronously in the thread that publishes event.</p>
+     * <p>Returned futures are already completed when publishing method returns,
+     * except for ordered events that wait for the previous ones published concurrently.</p>
+     * @return same thread executor
+     */
+    public static Executor sameThread() {
+        return SAME_THREAD;
+    }
+
+    /**
+     * <p>Executor that starts new virtual thread for every notification, for listeners that block.</p>
+     * <p>Virtual threads are available since Java 21, executor is looked up at runtime</p>
+     * @return virtual thread per task executor
+     * @throws UnsupportedOperationException if virtual threads are not supported by current JVM
+     */
+    public static ExecutorService virtualThreads() {
+        Method factory;
+        try {
+            factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException ex) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM", ex);
+        }
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (IllegalAccessException ex) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM", ex);
+        } catch (InvocationTargetException ex) {
+            //preview feature not enabled
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM", ex.getCause());
+        }
+    }
+}
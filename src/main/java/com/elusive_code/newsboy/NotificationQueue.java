@@ -0,0 +1,269 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.elusive_code.newsboy;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Bounded queue of notifications in front of the notification pool.</p>
+ * <p>
+ *     Notifications are handled by draining tasks, no more of them than pool parallelism,
+ *     so amount of work accepted by the pool doesn't exceed queue capacity.
+ *     When queue is full {@link OverflowPolicy} decides what to do.
+ * </p>
+ * <p>
+ *     Ordered events that wait for their turn outside of the queue reserve slots of the same capacity,
+ *     so publishers of ordered events are subject to overflow policy as well.
+ * </p>
+ */
+class NotificationQueue {
+
+    private static final Logger LOG = Logger.getLogger(NotificationQueue.class.getName());
+
+    private ForkJoinPool                         pool;
+    private LinkedBlockingDeque<ForkJoinTask<?>> queue;
+    private int                                  capacity;
+    private volatile OverflowPolicy              overflowPolicy;
+    private AtomicInteger                        drainers = new AtomicInteger();
+
+    /**
+     * Slots taken by queued notifications and by ordered events waiting for their turn,
+     * single count keeps both within capacity
+     */
+    private AtomicInteger occupied = new AtomicInteger();
+
+    /**
+     * Publishers waiting for slot to reserve, they wait on {@link #room}
+     */
+    private AtomicInteger waiters = new AtomicInteger();
+    private final Object  room    = new Object();
+
+    NotificationQueue(ForkJoinPool pool, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+        if (overflowPolicy == null) throw new IllegalArgumentException("Overflow policy is null");
+        this.pool = pool;
+        this.capacity = capacity;
+        this.queue = new LinkedBlockingDeque<>();
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) throw new IllegalArgumentException("Overflow policy is null");
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Queues notification, applies overflow policy if queue is full
+     * @param task notification to handle
+     * @throws EventQueueFullException if queue is full and policy is {@link OverflowPolicy#FAIL}
+     */
+    void submit(ForkJoinTask<?> task) {
+        if (!tryAcquire()) {
+            if (ForkJoinTask.getPool() == pool) {
+                //pool thread can't wait for itself
+                task.quietlyInvoke();
+                return;
+            }
+            switch (overflowPolicy) {
+                case BLOCK:
+                    if (!awaitRoom()) {
+                        drop(task);
+                        return;
+                    }
+                    break;
+                case DROP_NEWEST:
+                    drop(task);
+                    return;
+                case DROP_OLDEST:
+                    if (!dropOldest()) {
+                        //room is taken by ordered events waiting for their turn
+                        drop(task);
+                        return;
+                    }
+                    break;
+                case FAIL:
+                    drop(task);
+                    throw new EventQueueFullException(capacity);
+                case CALLER_RUNS:
+                    task.quietlyInvoke();
+                    return;
+            }
+        }
+        queue.offerLast(task);
+        startDrainer();
+    }
+
+    /**
+     * <p>Reserves slot for ordered event that waits for its turn outside of the queue,
+     * applies overflow policy if there is no room. Slot is returned with {@link #release()} when event is scheduled.</p>
+     * <p>
+     *     Waiting event can't be handled by publisher out of turn, so {@link OverflowPolicy#CALLER_RUNS}
+     *     blocks publisher until there is room, and {@link OverflowPolicy#DROP_OLDEST} drops oldest queued
+     *     notifications, or the event itself if room is taken by other waiting ordered events.
+     *     Pool threads always get the slot, since they can neither wait nor fail.
+     * </p>
+     * @return false if event should be dropped
+     * @throws EventQueueFullException if there is no room and policy is {@link OverflowPolicy#FAIL}
+     */
+    boolean reserve() {
+        if (tryAcquire()) return true;
+        if (ForkJoinTask.getPool() == pool) {
+            occupied.incrementAndGet();
+            return true;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+            case CALLER_RUNS:
+                return awaitRoom();
+            case DROP_OLDEST:
+                return dropOldest();
+            case FAIL:
+                throw new EventQueueFullException(capacity);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns slot reserved by ordered event when it's scheduled
+     */
+    void release() {
+        occupied.decrementAndGet();
+        signalRoom();
+    }
+
+    /**
+     * Takes slot if there is room
+     */
+    private boolean tryAcquire() {
+        while (true) {
+            int count = occupied.get();
+            if (count >= capacity) return false;
+            if (occupied.compareAndSet(count, count + 1)) return true;
+        }
+    }
+
+    /**
+     * Drops oldest queued notifications until slot is taken
+     * @return false if there are no queued notifications to drop
+     */
+    private boolean dropOldest() {
+        while (!tryAcquire()) {
+            ForkJoinTask<?> oldest = queue.pollFirst();
+            if (oldest == null) return false;
+            occupied.decrementAndGet();
+            drop(oldest);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until slot is reserved
+     * @return false if publisher was interrupted
+     */
+    private boolean awaitRoom() {
+        synchronized (room) {
+            waiters.incrementAndGet();
+            try {
+                while (!tryAcquire()) {
+                    room.wait();
+                }
+                return true;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiters.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Wakes up publishers waiting for slot, if there are any
+     */
+    private void signalRoom() {
+        if (waiters.get() > 0) {
+            synchronized (room) {
+                room.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Cancels notification that won't be handled, posted events have no future so they are logged
+     * @param task dropped notification
+     */
+    static void drop(ForkJoinTask<?> task) {
+        if (task instanceof EventNotifierTask) {
+            ((EventNotifierTask) task).drop();
+        } else {
+            LOG.log(Level.WARNING, "Notification queue is full, dropped " + task);
+            task.cancel(false);
+        }
+    }
+
+    private void startDrainer() {
+        if (tryAcquireDrainer()) {
+            pool.execute(new Drainer());
+        }
+    }
+
+    private boolean tryAcquireDrainer() {
+        while (true) {
+            int count = drainers.get();
+            if (count >= pool.getParallelism()) return false;
+            if (drainers.compareAndSet(count, count + 1)) return true;
+        }
+    }
+
+    /**
+     * Task that handles queued notifications until queue is empty
+     */
+    private class Drainer extends RecursiveAction {
+
+        @Override
+        protected void compute() {
+            do {
+                ForkJoinTask<?> task;
+                while ((task = queue.pollFirst()) != null) {
+                    occupied.decrementAndGet();
+                    signalRoom();
+                    task.quietlyInvoke();
+                }
+                drainers.decrementAndGet();
+                //notification could be queued after the last poll but before the decrement
+            } while (!queue.isEmpty() && tryAcquireDrainer());
+        }
+    }
+}
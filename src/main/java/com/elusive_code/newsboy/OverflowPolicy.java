@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Defines what happens when bounded notification queue of {@link AsyncEventService} is full.</p>
+ * <ul>
+ *     <li>{@link #BLOCK} - publisher waits until queue has room</li>
+ *     <li>{@link #DROP_NEWEST} - notification that doesn't fit is cancelled</li>
+ *     <li>{@link #DROP_OLDEST} - oldest queued notification is cancelled to make room</li>
+ *     <li>{@link #FAIL} - {@link EventQueueFullException} is thrown to the publisher</li>
+ *     <li>{@link #CALLER_RUNS} - publisher handles notification in its own thread</li>
+ * </ul>
+ * <p>
+ *     Policy applies to threads that publish events.
+ *     Notifications queued by the pool itself (ordered events that waited for their turn, batches)
+ *     are handled in place when queue is full, since pool threads can neither wait nor fail.
+ * </p>
+ * <p>
+ *     Ordered events waiting for their turn take slots of the queue as well.
+ *     Such event can't be handled out of turn, so with {@link #CALLER_RUNS} its publisher waits for room,
+ *     and with {@link #DROP_OLDEST} the event itself is dropped when there are no queued notifications to drop.
+ * </p>
+ * <p>
+ *     Cancelled notifications complete with {@link java.util.concurrent.CancellationException},
+ *     ordered delivery proceeds to the next event.
+ * </p>
+ *
+ * @see AsyncEventService#AsyncEventService(int, int, OverflowPolicy)
+ */
+public enum OverflowPolicy {
+    BLOCK,
+    DROP_NEWEST,
+    DROP_OLDEST,
+    FAIL,
+    CALLER_RUNS
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+/**
+ * <p>Priority of notifications.</p>
+ * <p>
+ *     Notifications of higher priority are handled before waiting notifications of lower one.
+ *     Lower priorities are not starved: they get a share of handling even while higher ones keep coming.
+ * </p>
+ * <p>Priorities apply only when service has them enabled.</p>
+ *
+ * @see AsyncEventService#setPriorityEnabled(boolean)
+ * @see Subscribe#priority()
+ * @see AsyncEventService#publish(Object, Priority)
+ */
+public enum Priority {
+
+    HIGH,
+
+    NORMAL,
+
+    LOW
+
+}
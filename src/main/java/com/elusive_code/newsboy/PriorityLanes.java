@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Queues of notifications by {@link Priority}, in front of the notification pool.</p>
+ * <p>
+ *     Notifications are handled by draining tasks, no more of them than pool parallelism,
+ *     so the pool holds hardly any notifications and new high priority ones don't wait behind its backlog.
+ *     Draining task takes notification from the highest non-empty lane,
+ *     except every {@link #FAIRNESS}-th one, which is taken starting from lower lanes in turn.
+ *     So notification of non-empty lower lane waits for at most
+ *     {@code FAIRNESS * (lanes - 1)} notifications of higher ones.
+ * </p>
+ */
+class PriorityLanes {
+
+    /**
+     * Every this many notifications lower lanes have precedence
+     */
+    static final int FAIRNESS = 8;
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private ConcurrentLinkedQueue<EventNotifierTask>[] lanes;
+    private int                                        maxDrainers;
+    private AtomicInteger                              drainers = new AtomicInteger();
+    private AtomicInteger                              size     = new AtomicInteger();
+    private AtomicInteger                              polls    = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    PriorityLanes(int maxDrainers) {
+        this.maxDrainers = Math.max(1, maxDrainers);
+        this.lanes = new ConcurrentLinkedQueue[PRIORITIES.length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Queues notification to the lane of its priority, starts draining task if there are less of them than allowed
+     * @param task notification to handle
+     * @param service service that runs draining tasks
+     */
+    void submit(EventNotifierTask task, AsyncEventService service) {
+        lanes[task.getPriority().ordinal()].offer(task);
+        size.incrementAndGet();
+        if (tryAcquireDrainer()) {
+            service.scheduleLanes(this);
+        }
+    }
+
+    /**
+     * Handles queued notifications until lanes are empty
+     */
+    void drain() {
+        do {
+            ForkJoinTask<?> task;
+            while ((task = poll()) != null) {
+                task.quietlyInvoke();
+            }
+            drainers.decrementAndGet();
+            //notification could be queued after the last poll but before the decrement
+        } while (size.get() > 0 && tryAcquireDrainer());
+    }
+
+    private EventNotifierTask poll() {
+        if (size.get() == 0) return null;
+        int poll = polls.incrementAndGet() & Integer.MAX_VALUE;
+        int start = 0;
+        if (poll % FAIRNESS == 0) {
+            start = 1 + (poll / FAIRNESS) % (lanes.length - 1);
+        }
+        for (int i = 0; i < lanes.length; i++) {
+            EventNotifierTask task = lanes[(start + i) % lanes.length].poll();
+            if (task != null) {
+                size.decrementAndGet();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean tryAcquireDrainer() {
+        while (true) {
+            int count = drainers.get();
+            if (count >= maxDrainers) return false;
+            if (drainers.compareAndSet(count, count + 1)) return true;
+        }
+    }
+}
@@ -55,4 +55,128 @@ public @interface Subscribe {
      */
     int eventSourceParameter() default -2;
 
+    /**
+     * <p>
+     *     Makes method a batch handler: instead of single event it receives {@link java.util.List} of events
+     *     coalesced for the listener up to this size or up to {@link #batchDelay()}, whichever comes first.
+     * </p>
+     * <p>
+     *     Events type is taken from generic type of the list argument (e.g. {@code List<PriceEvent>}),
+     *     if it isn't a class {@link #eventType()} is used.
+     * </p>
+     * <p>
+     *     Use 0 (default) for regular handlers.
+     * </p>
+     * @return maximum amount of events in the batch
+     */
+    int batchSize() default 0;
+
+    /**
+     * <p>
+     *     For batch handlers: maximum time in milliseconds the first event of the batch waits for others.
+     *     When 0, events are delivered in batches only when they are published faster than they are handled.
+     * </p>
+     * @return maximum batching delay in milliseconds
+     * @see #batchSize()
+     */
+    long batchDelay() default 0;
+
+    /**
+     * <p>
+     *     Serial handlers of the same listener are notified one at a time, in the order notifications were scheduled,
+     *     so listener doesn't need to synchronize them. No thread is dedicated to the listener:
+     *     its notifications are queued in a mailbox that is drained by a single notification task at a time.
+     * </p>
+     * <p>
+     *     Other handlers of the listener are not affected. Not applicable to batch handlers.
+     * </p>
+     * @return whether handler is serial
+     */
+    boolean serial() default false;
+
+    /**
+     * <p>
+     *     Maximum time in milliseconds event handling method is expected to run.
+     *     When it's exceeded, notification is reported with the stack of the thread running it
+     *     and, if service is configured so, its {@link NotificationFuture} fails with {@link HandlerTimeoutException}.
+     * </p>
+     * <p>
+     *     Use 0 (default) for timeout configured in the service, see {@link AsyncEventService#setHandlerTimeout(long)}.
+     * </p>
+     * @return handler timeout in milliseconds
+     * @see AsyncEventService#setFailOnTimeout(boolean)
+     */
+    long timeout() default 0;
+
+    /**
+     * <p>
+     *     Filter that decides whether handler should be notified of the event.
+     *     It's evaluated before notification is created, so rejected events cost nothing to the handler.
+     *     For batch handlers it is evaluated for every event of the batch.
+     * </p>
+     * <p>
+     *     Use {@link EventFilter} itself (default) for no filter.
+     * </p>
+     * @return filter class, should have public no-argument constructor
+     * @see #filterMethod()
+     */
+    Class<? extends EventFilter> filter() default EventFilter.class;
+
+    /**
+     * <p>
+     *     Name of the listener method that decides whether handler should be notified of the event,
+     *     same as {@link #filter()} but with access to the listener state.
+     *     Method should be public, return {@code boolean} and accept single argument of event type.
+     * </p>
+     * <p>
+     *     Use "" (default) for no filter. Can't be used together with {@link #filter()}.
+     * </p>
+     * @return name of filter method
+     */
+    String filterMethod() default "";
+
+    /**
+     * <p>
+     *     Conflates notifications of the handler: while notification is waiting for handling,
+     *     newer event of the same class replaces its event instead of scheduling another notification.
+     *     Publishers of replaced events receive that notification as their future.
+     *     Events implementing {@link Conflatable} are conflated for every handler, by their conflation key.
+     * </p>
+     * <p>
+     *     Ordered events are never conflated. Not applicable to batch handlers.
+     * </p>
+     * @return whether notifications of the handler are conflated
+     */
+    boolean conflate() default false;
+
+    /**
+     * <p>
+     *     Priority of handler notifications, unless event is published with its own priority.
+     *     Notifications of higher priority don't wait behind the backlog of lower ones.
+     * </p>
+     * <p>
+     *     Doesn't apply to batch and serial handlers, which are scheduled on their own,
+     *     and to services with bounded queue.
+     *     Ignored unless service has priorities enabled with {@link AsyncEventService#setPriorityEnabled(boolean)}.
+     * </p>
+     * @return priority of the handler
+     * @see AsyncEventService#publish(Object, Priority)
+     */
+    Priority priority() default Priority.NORMAL;
+
+    /**
+     * <p>
+     *     Runs handler right in the thread that dispatches its notification, without scheduling a task:
+     *     in the publishing task, or in publishing thread when service has bounded queue or priorities enabled.
+     *     Returned {@link NotificationFuture} is completed once handler returns.
+     * </p>
+     * <p>
+     *     Meant for tiny handlers, for which scheduling costs more than handling.
+     *     Slow inline handler delays other notifications of the event.
+     *     Not applicable to batch and serial handlers, priority is ignored.
+     * </p>
+     * @return whether handler is run inline
+     */
+    boolean inline() default false;
+
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * <p>Base of {@link Subscribe} values in indexes generated by
+ * {@link com.elusive_code.newsboy.processor.SubscribeProcessor}, not meant to be used by application code.</p>
+ * <p>
+ *     Implements {@link #equals(Object)}, {@link #hashCode()} and {@link #annotationType()}
+ *     as {@link Annotation} contract requires, so values are interchangeable with annotation read with reflection.
+ * </p>
+ */
+public abstract class SubscribeLiteral implements Subscribe {
+
+    @Override
+    public final Class<? extends Annotation> annotationType() {
+        return Subscribe.class;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Subscribe)) return false;
+        Subscribe other = (Subscribe) o;
+        return eventType() == other.eventType()
+               && eventSourceParameter() == other.eventSourceParameter()
+               && batchSize() == other.batchSize()
+               && batchDelay() == other.batchDelay()
+               && serial() == other.serial()
+               && timeout() == other.timeout()
+               && filter() == other.filter()
+               && filterMethod().equals(other.filterMethod())
+               && conflate() == other.conflate()
+               && priority() == other.priority()
+               && inline() == other.inline();
+    }
+
+    /**
+     * @return sum of member hashes, as defined by {@link Annotation#hashCode()}
+     */
+    @Override
+    public int hashCode() {
+        return member("eventType", eventType().hashCode())
+               + member("eventSourceParameter", Integer.valueOf(eventSourceParameter()).hashCode())
+               + member("batchSize", Integer.valueOf(batchSize()).hashCode())
+               + member("batchDelay", Long.valueOf(batchDelay()).hashCode())
+               + member("serial", Boolean.valueOf(serial()).hashCode())
+               + member("timeout", Long.valueOf(timeout()).hashCode())
+               + member("filter", filter().hashCode())
+               + member("filterMethod", filterMethod().hashCode())
+               + member("conflate", Boolean.valueOf(conflate()).hashCode())
+               + member("priority", priority().hashCode())
+               + member("inline", Boolean.valueOf(inline()).hashCode());
+    }
+
+    private static int member(String name, int valueHash) {
+        return (127 * name.hashCode()) ^ valueHash;
+    }
+
+    @Override
+    public String toString() {
+        return "@" + Subscribe.class.getName() + "("
+               + "eventType=" + eventType().getName() + ".class"
+               + ", eventSourceParameter=" + eventSourceParameter()
+               + ", batchSize=" + batchSize()
+               + ", batchDelay=" + batchDelay()
+               + ", serial=" + serial()
+               + ", timeout=" + timeout()
+               + ", filter=" + filter().getName() + ".class"
+               + ", filterMethod=\"" + filterMethod() + "\""
+               + ", conflate=" + conflate()
+               + ", priority=" + priority()
+               + ", inline=" + inline()
+               + ")";
+    }
+}
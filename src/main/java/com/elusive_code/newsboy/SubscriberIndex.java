@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.elusive_code.newsboy;
+
+import java.lang.reflect.Method;
+
+/**
+ * <p>Index of event handling methods of the listener class generated at compile time
+ * by {@link com.elusive_code.newsboy.processor.SubscribeProcessor}.</p>
+ * <p>
+ *     Index of class {@code a.b.Listener} is named {@code a.b.Listener$$SubscriberIndex}.
+ *     When it exists, subscribing instances of the class doesn't scan its methods or parse their annotations,
+ *     and handlers and their filters are invoked by generated code instead of reflection.
+ *     Only event handling methods themselves are looked up, since notifications expose them.
+ *     Otherwise methods are discovered with reflection.
+ * </p>
+ */
+public interface SubscriberIndex {
+
+    /**
+     * Suffix of generated index class name
+     */
+    String SUFFIX = "$$SubscriberIndex";
+
+    /**
+     * @return amount of event handling methods of the class
+     */
+    int size();
+
+    /**
+     * @param i index of event handling method
+     * @return event handling method
+     * @throws NoSuchMethodException if class has changed since index was generated
+     */
+    Method getMethod(int i) throws NoSuchMethodException;
+
+    /**
+     * @param i index of event handling method
+     * @return invoker that calls event handling method directly
+     */
+    HandlerInvoker getInvoker(int i);
+
+    /**
+     * @param i index of event handling method
+     * @return parameters of {@link Subscribe} annotation of the method, read at compile time
+     */
+    Subscribe getSubscribe(int i);
+
+    /**
+     * @param i index of event handling method
+     * @return type of events handled by the method
+     */
+    Class getEventType(int i);
+
+    /**
+     * @param i index of event handling method
+     * @return position of event argument, -1 if method doesn't accept event
+     */
+    int getEventParameter(int i);
+
+    /**
+     * @param i index of event handling method
+     * @return position of event source argument, -1 if method doesn't accept event source
+     */
+    int getSourceParameter(int i);
+
+    /**
+     * @param i index of event handling method
+     * @return new instance of {@link Subscribe#filter()}, null if method has none or it can't be created by generated code
+     */
+    EventFilter getFilter(int i);
+
+    /**
+     * @param i index of event handling method
+     * @return invoker that calls {@link Subscribe#filterMethod()} directly, null if method has none
+     */
+    HandlerInvoker getFilterInvoker(int i);
+}
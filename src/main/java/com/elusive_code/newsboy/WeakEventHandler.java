@@ -17,7 +17,6 @@
 package com.elusive_code.newsboy;
 
 import java.lang.ref.WeakReference;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -37,11 +36,12 @@ import java.util.logging.Logger;
 public class WeakEventHandler {
     public static final Logger LOG = Logger.getLogger(WeakEventHandler.class.getName());
 
-    private WeakReference target;
-    private Method        method;
-    private Class         eventType;
-    private int           sourceParameter;
-    private int           eventParameter;
+    private WeakReference     target;
+    private Object            strongTarget;
+    private HandlerDescriptor descriptor;
+    private EventBatcher      batcher;
+    private Mailbox           mailbox;
+    private volatile Conflator conflator;
 
     /**
      * <p>Constructor that accepts target object and method that will perform event handling</p>
@@ -57,68 +57,46 @@ public class WeakEventHandler {
      * @param method method that performs event handling
      */
     public WeakEventHandler(Object target, Method method) {
-        if (target == null) throw new IllegalArgumentException("Target is null");
-        if (method == null) throw new IllegalArgumentException("Method is null");
-
-        this.target = new WeakReference(target);
-        this.method = method;
-
-        Subscribe annotation = method.getAnnotation(Subscribe.class);
-        this.sourceParameter = annotation.eventSourceParameter();
-        if (this.sourceParameter < 0) this.sourceParameter = -1;
-
-        //if method has no arguments it will be subscribed to all events
-        Class[] args = method.getParameterTypes();
-
-        if (this.sourceParameter >= args.length) {
-            throw new IllegalArgumentException(
-                    "eventSourceParameter is '"+this.sourceParameter+"' but method has "+args.length+" arguments");
-        }
-
-        if (this.sourceParameter<0){
-            //attempting to determine source parameter when not specified in annotation
-            for (int i=0; i<args.length; i++) {
-                Class c = args[i];
-                if (EventSource.class.isAssignableFrom(c)){
-                    if (this.sourceParameter<0) {
-                        this.sourceParameter = i;
-                    } else {
-                        throw new IllegalArgumentException(
-                                "Ambiguous EventSource parameters: #"+this.sourceParameter+" and #"+i);
-                    }
-                }
-            }
-            if (args.length == 1 && this.sourceParameter == 0 && annotation.eventSourceParameter() <= -2) {
-                throw new IllegalArgumentException("Ambiguous EventSource, not sure if event type or source");
-            }
-        }
-
+        this(target, method, InvokerStrategy.METHOD_HANDLE);
+    }
 
+    /**
+     * <p>Constructor that accepts target object, method that will perform event handling
+     * and strategy used to invoke that method.</p>
+     * @param target object on which event handling method will be invoked
+     * @param method method that performs event handling
+     * @param invokerStrategy strategy that defines how method is invoked
+     * @see #WeakEventHandler(Object, java.lang.reflect.Method)
+     */
+    public WeakEventHandler(Object target, Method method, InvokerStrategy invokerStrategy) {
+        this(target, new HandlerDescriptor(method, invokerStrategy), false);
+    }
 
-        if (args.length >= 3 || args.length == 2 && this.sourceParameter < 0){
-            throw new IllegalArgumentException("Method has too many arguments, don't know for which to subscribe");
-        }
+    /**
+     * Binds target object to already parsed event handling method
+     * @param target object on which event handling method will be invoked
+     * @param descriptor parsed event handling method
+     * @param strong whether to keep strong reference to the target instead of weak one
+     */
+    WeakEventHandler(Object target, HandlerDescriptor descriptor, boolean strong) {
+        if (target == null) throw new IllegalArgumentException("Target is null");
 
-        if (args.length == 2) {
-            this.eventParameter = args.length - 1 - this.sourceParameter;
-        } else if (args.length == 1) {
-            this.eventParameter = -1 - this.sourceParameter;
+        if (strong) {
+            this.strongTarget = target;
         } else {
-            this.eventParameter = -1;
+            this.target = new WeakReference(target);
         }
-
-        if (this.eventParameter>=0){
-            this.eventType = args[this.eventParameter];
-        } else {
-            this.eventType = annotation.eventType();
+        this.descriptor = descriptor;
+        if (descriptor.getBatchSize() > 0) {
+            this.batcher = new EventBatcher(this, descriptor.getBatchSize(), descriptor.getBatchDelay());
         }
 
         if(LOG.isLoggable(Level.FINE)){
             LOG.fine("Subscribed {"+target+"}" +
-                     " method {"+method+"}" +
-                     " for events {"+this.eventType+"}" +
-                     " eventParameter="+this.eventParameter +
-                     " sourceParameter="+this.sourceParameter);
+                     " method {"+descriptor.getMethod()+"}" +
+                     " for events {"+descriptor.getEventType()+"}" +
+                     " eventParameter="+descriptor.getEventParameter() +
+                     " sourceParameter="+descriptor.getSourceParameter());
         }
     }
 
@@ -127,15 +105,24 @@ public class WeakEventHandler {
      * @return event listener
      */
     public Object getTarget() {
+        if (strongTarget != null) return strongTarget;
         return target.get();
     }
 
+    /**
+     * Whether handler keeps strong reference to the target
+     * @return true if target is subscribed with {@link EventService#subscribeStrong(Object)}
+     */
+    public boolean isStrong() {
+        return strongTarget != null;
+    }
+
     /**
      * Returns method that will be invoked for event handling
      * @return event handling method
      */
     public Method getMethod() {
-        return method;
+        return descriptor.getMethod();
     }
 
     /**
@@ -144,7 +131,129 @@ public class WeakEventHandler {
      * @return event type
      */
     public Class getEventType() {
-        return eventType;
+        return descriptor.getEventType();
+    }
+
+    /**
+     * Whether handling method receives events in batches
+     * @return true for batch handler
+     * @see Subscribe#batchSize()
+     */
+    public boolean isBatch() {
+        return batcher != null;
+    }
+
+    /**
+     * Whether notifications of this handler are serialized with other serial handlers of the same listener
+     * @return true for serial handler
+     * @see Subscribe#serial()
+     */
+    public boolean isSerial() {
+        return descriptor.isSerial();
+    }
+
+    /**
+     * Whether handler is notified only of events accepted by its filter
+     * @return true if handler has filter
+     * @see Subscribe#filter()
+     * @see Subscribe#filterMethod()
+     */
+    public boolean hasFilter() {
+        return descriptor.hasFilter();
+    }
+
+    /**
+     * Evaluates filter of the handler
+     * @param target listener, which method may be used as filter
+     * @param event published event
+     * @return true if handler should be notified of the event
+     * @throws Throwable exception produced by filter
+     */
+    boolean accepts(Object target, Object event) throws Throwable {
+        return descriptor.accepts(target, event);
+    }
+
+    /**
+     * Maximum time event handling method is expected to run
+     * @return timeout in milliseconds, 0 if timeout of the service applies
+     * @see Subscribe#timeout()
+     */
+    public long getTimeout() {
+        return descriptor.getTimeout();
+    }
+
+    /**
+     * Whether handler is run by the thread that dispatches its notification
+     * @return true for inline handler
+     * @see Subscribe#inline()
+     */
+    public boolean isInline() {
+        return descriptor.isInline();
+    }
+
+    /**
+     * Priority of notifications of this handler
+     * @return handler priority
+     * @see Subscribe#priority()
+     */
+    public Priority getPriority() {
+        return descriptor.getPriority();
+    }
+
+    /**
+     * Whether notifications of this handler are conflated
+     * @return true if handler conflates events of any class
+     * @see Subscribe#conflate()
+     */
+    public boolean isConflate() {
+        return descriptor.isConflate();
+    }
+
+    /**
+     * Whether notification of the event should be conflated with pending ones
+     * @param event published event
+     * @return true if handler conflates events or event is {@link Conflatable}, and handler is not a batch one
+     */
+    boolean conflates(Object event) {
+        return batcher == null && (descriptor.isConflate() || event instanceof Conflatable);
+    }
+
+    /**
+     * Pending notifications of this handler by conflation key, created on first use
+     * @return conflator
+     */
+    Conflator getConflator() {
+        Conflator conflator = this.conflator;
+        if (conflator == null) {
+            synchronized (this) {
+                conflator = this.conflator;
+                if (conflator == null) {
+                    conflator = new Conflator();
+                    this.conflator = conflator;
+                }
+            }
+        }
+        return conflator;
+    }
+
+    /**
+     * Mailbox shared by serial handlers of the listener
+     * @return mailbox or null if handler is not serial or mailbox is not assigned
+     */
+    Mailbox getMailbox() {
+        return mailbox;
+    }
+
+    void setMailbox(Mailbox mailbox) {
+        this.mailbox = mailbox;
+    }
+
+    /**
+     * Accumulates batches of this handler
+     * @return batcher or null if handler is not a batch one
+     */
+    EventBatcher getBatcher() {
+        return batcher;
     }
 
     /**
@@ -170,30 +279,17 @@ public class WeakEventHandler {
      * @throws java.lang.Throwable exception produced by listener
      */
     public Object handleEvent(Object event, EventSource source) throws Throwable {
-        Object target = this.target.get();
-        if (target == null) throw new WeakReferenceCollectedException();
-        try {
-
-            Object[] args = new Object[method.getParameterTypes().length];
-            for (int i = 0; i < args.length; i++) {
-                if (i == this.sourceParameter) {
-                    args[i] = source;
-                } else if (i == eventParameter) {
-                    args[i] = event;
-                } else {
-                    args[i] = null;
-                }
-            }
-
-            return method.invoke(target,args);
-        }catch (InvocationTargetException ex) {
-            throw ex.getCause();
+        Object target = strongTarget;
+        if (target == null) {
+            target = this.target.get();
+            if (target == null) throw new WeakReferenceCollectedException();
         }
+        return descriptor.getInvoker().invoke(target, event, source);
     }
 
 
     @Override
     public String toString() {
-        return "WeakEventHandler{ " + target.get() + " # " + method + " }";
+        return "WeakEventHandler{ " + getTarget() + " # " + descriptor.getMethod() + " }";
     }
 }
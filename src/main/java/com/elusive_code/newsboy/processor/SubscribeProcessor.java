@@ -0,0 +1,514 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.elusive_code.newsboy.processor;
+
+import com.elusive_code.newsboy.Subscribe;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Annotation processor that generates {@link com.elusive_code.newsboy.SubscriberIndex}
+ * for every class that declares methods marked with {@link Subscribe}.</p>
+ * <p>
+ *     Generated index lists event handling methods of the class (including inherited ones)
+ *     with their {@link Subscribe} parameters, event types and filters resolved at compile time,
+ *     and contains invokers that call them and their filter methods directly.
+ *     It is picked up by {@link com.elusive_code.newsboy.AsyncEventService} on subscription,
+ *     classes without index are scanned with reflection.
+ * </p>
+ * <p>
+ *     Index is not generated for classes that can't be accessed from their package (private, local, anonymous),
+ *     have methods with arguments that don't fit {@link Subscribe} rules,
+ *     or refer to argument, event or filter types that can't be accessed from the package of the class.
+ *     Such classes are handled with reflection, which reports errors on subscription as usual.
+ * </p>
+ * <p>Processor is registered as a service, so it is run by compiler when library is on the classpath.</p>
+ */
+@SupportedAnnotationTypes("com.elusive_code.newsboy.Subscribe")
+public class SubscribeProcessor extends AbstractProcessor {
+
+    private static final String INDEX_SUFFIX   = "$$SubscriberIndex";
+    private static final String EVENT_SOURCE   = "com.elusive_code.newsboy.EventSource";
+    private static final String EVENT_FILTER   = "com.elusive_code.newsboy.EventFilter";
+    private static final String SUBSCRIBE      = "com.elusive_code.newsboy.Subscribe";
+    private static final String LIST           = "java.util.List";
+
+    private Set<String> processed = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> listeners = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(Subscribe.class)) {
+            if (element.getKind() == ElementKind.METHOD) {
+                listeners.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+        for (TypeElement listener : listeners) {
+            String name = processingEnv.getElementUtils().getBinaryName(listener).toString();
+            PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(listener);
+            if (processed.add(name) && isAccessible(listener, packageElement)
+                && listener.getKind() == ElementKind.CLASS) {
+                generateIndex(listener, name);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that class and its enclosing classes can be accessed from the package
+     */
+    private boolean isAccessible(TypeElement type, PackageElement from) {
+        boolean samePackage = processingEnv.getElementUtils().getPackageOf(type).equals(from);
+        Element element = type;
+        while (element instanceof TypeElement) {
+            TypeElement t = (TypeElement) element;
+            if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) return false;
+            if (t.getModifiers().contains(Modifier.PRIVATE)) return false;
+            if (!samePackage && !t.getModifiers().contains(Modifier.PUBLIC)) return false;
+            element = t.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * Checks that erasure of the type can be referenced from the package, so generated code compiles
+     */
+    private boolean isAccessible(TypeMirror type, PackageElement from) {
+        TypeMirror erased = erasureType(type);
+        while (erased.getKind() == TypeKind.ARRAY) {
+            erased = ((ArrayType) erased).getComponentType();
+        }
+        if (erased.getKind().isPrimitive() || erased.getKind() == TypeKind.VOID) return true;
+        if (erased.getKind() != TypeKind.DECLARED) return false;
+        return isAccessible((TypeElement) ((DeclaredType) erased).asElement(), from);
+    }
+
+    private void generateIndex(TypeElement listener, String binaryName) {
+        List<Handler> handlers = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(listener))) {
+            if (method.getAnnotation(Subscribe.class) == null) continue;
+            if (!method.getModifiers().contains(Modifier.PUBLIC)) continue;
+            Handler handler = createHandler(listener, method);
+            if (handler == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                        "Subscriber index is not generated, event handling method doesn't fit @Subscribe rules " +
+                        "or uses types inaccessible from the package of the listener",
+                        method);
+                return;
+            }
+            handlers.add(handler);
+        }
+
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(listener);
+        String packageName = packageElement.isUnnamed() ? null : packageElement.getQualifiedName().toString();
+        String simpleName = (packageName == null ? binaryName : binaryName.substring(packageName.length() + 1))
+                            + INDEX_SUFFIX;
+        String indexName = packageName == null ? simpleName : packageName + "." + simpleName;
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(indexName, listener);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                if (packageName != null) {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("/**");
+                out.println(" * Generated by " + SubscribeProcessor.class.getName() + ", do not edit");
+                out.println(" */");
+                out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+                out.println("public final class " + simpleName + " implements com.elusive_code.newsboy.SubscriberIndex {");
+                out.println();
+                out.println("    private static final com.elusive_code.newsboy.HandlerInvoker[] INVOKERS = {");
+                for (Handler handler : handlers) {
+                    out.println(handler.invoker + ",");
+                }
+                out.println("    };");
+                out.println();
+                out.println("    private static final com.elusive_code.newsboy.Subscribe[] SUBSCRIBE = {");
+                for (Handler handler : handlers) {
+                    out.println(handler.subscribe + ",");
+                }
+                out.println("    };");
+                out.println();
+                out.println("    private static final Class[] EVENT_TYPES = {");
+                for (Handler handler : handlers) {
+                    out.println("        " + handler.eventType + ",");
+                }
+                out.println("    };");
+                out.println();
+                out.println("    private static final com.elusive_code.newsboy.HandlerInvoker[] FILTER_INVOKERS = {");
+                for (Handler handler : handlers) {
+                    out.println((handler.filterInvoker == null ? "        null" : handler.filterInvoker) + ",");
+                }
+                out.println("    };");
+                out.println();
+                out.println("    @Override");
+                out.println("    public int size() {");
+                out.println("        return " + handlers.size() + ";");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public java.lang.reflect.Method getMethod(int i) throws NoSuchMethodException {");
+                out.println("        switch (i) {");
+                for (int i = 0; i < handlers.size(); i++) {
+                    out.println("            case " + i + ": return " + handlers.get(i).lookup + ";");
+                }
+                out.println("            default: throw new IndexOutOfBoundsException(String.valueOf(i));");
+                out.println("        }");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public com.elusive_code.newsboy.HandlerInvoker getInvoker(int i) {");
+                out.println("        return INVOKERS[i];");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public com.elusive_code.newsboy.Subscribe getSubscribe(int i) {");
+                out.println("        return SUBSCRIBE[i];");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public Class getEventType(int i) {");
+                out.println("        return EVENT_TYPES[i];");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public int getEventParameter(int i) {");
+                out.println("        switch (i) {");
+                for (int i = 0; i < handlers.size(); i++) {
+                    out.println("            case " + i + ": return " + handlers.get(i).eventParameter + ";");
+                }
+                out.println("            default: throw new IndexOutOfBoundsException(String.valueOf(i));");
+                out.println("        }");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public int getSourceParameter(int i) {");
+                out.println("        switch (i) {");
+                for (int i = 0; i < handlers.size(); i++) {
+                    out.println("            case " + i + ": return " + handlers.get(i).sourceParameter + ";");
+                }
+                out.println("            default: throw new IndexOutOfBoundsException(String.valueOf(i));");
+                out.println("        }");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public com.elusive_code.newsboy.EventFilter getFilter(int i) {");
+                out.println("        switch (i) {");
+                for (int i = 0; i < handlers.size(); i++) {
+                    if (handlers.get(i).filter != null) {
+                        out.println("            case " + i + ": return " + handlers.get(i).filter + ";");
+                    }
+                }
+                out.println("            default: return null;");
+                out.println("        }");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public com.elusive_code.newsboy.HandlerInvoker getFilterInvoker(int i) {");
+                out.println("        return FILTER_INVOKERS[i];");
+                out.println("    }");
+                out.println("}");
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Failed to generate subscriber index: " + ex, listener);
+        }
+    }
+
+    /**
+     * Resolves arguments, event type and filter of the method the same way
+     * {@link com.elusive_code.newsboy.AsyncEventService} does on subscription, and generates code for them
+     * @return generated parts of the index or null if method doesn't fit {@link Subscribe} rules
+     */
+    private Handler createHandler(TypeElement listener, ExecutableElement method) {
+        Subscribe annotation = method.getAnnotation(Subscribe.class);
+        Map<String, AnnotationValue> values = getSubscribeValues(method);
+        List<? extends VariableElement> parameters = method.getParameters();
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(listener);
+        //generated code refers to argument types, event type and filter
+        for (VariableElement parameter : parameters) {
+            if (!isAccessible(parameter.asType(), packageElement)) return null;
+        }
+        if (!isAccessible((TypeMirror) values.get("eventType").getValue(), packageElement)) return null;
+        if (!isAccessible((TypeMirror) values.get("filter").getValue(), packageElement)) return null;
+        TypeMirror eventSource = processingEnv.getElementUtils().getTypeElement(EVENT_SOURCE).asType();
+
+        int sourceParameter = annotation.eventSourceParameter();
+        if (sourceParameter < 0) sourceParameter = -1;
+        if (sourceParameter >= parameters.size()) return null;
+        if (sourceParameter < 0) {
+            for (int i = 0; i < parameters.size(); i++) {
+                if (processingEnv.getTypeUtils().isAssignable(erasureType(parameters.get(i).asType()), eventSource)) {
+                    if (sourceParameter >= 0) return null;
+                    sourceParameter = i;
+                }
+            }
+            if (parameters.size() == 1 && sourceParameter == 0 && annotation.eventSourceParameter() <= -2) return null;
+        }
+        if (parameters.size() >= 3 || parameters.size() == 2 && sourceParameter < 0) return null;
+
+        int eventParameter;
+        if (parameters.size() == 2) {
+            eventParameter = 1 - sourceParameter;
+        } else if (parameters.size() == 1) {
+            eventParameter = -1 - sourceParameter;
+        } else {
+            eventParameter = -1;
+        }
+
+        TypeMirror eventType = (TypeMirror) values.get("eventType").getValue();
+        if (annotation.batchSize() > 0) {
+            if (eventParameter < 0) return null;
+            TypeMirror argument = parameters.get(eventParameter).asType();
+            TypeMirror list = erasureType(processingEnv.getElementUtils().getTypeElement(LIST).asType());
+            if (!processingEnv.getTypeUtils().isAssignable(list, erasureType(argument))) return null;
+            //type of events is taken from List<EventType>
+            if (argument instanceof DeclaredType && !((DeclaredType) argument).getTypeArguments().isEmpty()) {
+                TypeMirror element = ((DeclaredType) argument).getTypeArguments().get(0);
+                if (element.getKind() == TypeKind.DECLARED
+                    || element.getKind() == TypeKind.ARRAY
+                       && processingEnv.getTypeUtils().isSameType(element, erasureType(element))) {
+                    eventType = element;
+                }
+            }
+        } else if (eventParameter >= 0) {
+            eventType = parameters.get(eventParameter).asType();
+        }
+
+        Handler handler = new Handler();
+        handler.lookup = createMethodLookup(listener, method);
+        handler.invoker = createInvoker(listener, method, parameters, sourceParameter);
+        handler.subscribe = createSubscribe(values);
+        if (!isAccessible(eventType, packageElement)) return null;
+        handler.eventType = erasure(eventType) + ".class";
+        handler.eventParameter = eventParameter;
+        handler.sourceParameter = sourceParameter;
+
+        TypeMirror filter = (TypeMirror) values.get("filter").getValue();
+        String filterMethod = annotation.filterMethod();
+        if (!EVENT_FILTER.equals(erasure(filter))) {
+            if (!filterMethod.isEmpty()) return null;
+            handler.filter = createFilter(filter);
+        } else if (!filterMethod.isEmpty()) {
+            handler.filterInvoker = createFilterInvoker(listener, method, filterMethod, eventType);
+            if (handler.filterInvoker == null) return null;
+        }
+        return handler;
+    }
+
+    /**
+     * Reads values of {@link Subscribe} annotation of the method, including default ones
+     * @return values by name of annotation member
+     */
+    private Map<String, AnnotationValue> getSubscribeValues(ExecutableElement method) {
+        Map<String, AnnotationValue> result = new HashMap<>();
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            if (!SUBSCRIBE.equals(erasure(mirror.getAnnotationType()))) continue;
+            Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                    processingEnv.getElementUtils().getElementValuesWithDefaults(mirror);
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+                result.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Generates {@link com.elusive_code.newsboy.SubscribeLiteral} that returns values of the annotation
+     */
+    private String createSubscribe(Map<String, AnnotationValue> values) {
+        StringBuilder result = new StringBuilder();
+        result.append("        new com.elusive_code.newsboy.SubscribeLiteral() {\n");
+        TypeElement subscribe = processingEnv.getElementUtils().getTypeElement(SUBSCRIBE);
+        for (ExecutableElement member : ElementFilter.methodsIn(subscribe.getEnclosedElements())) {
+            String name = member.getSimpleName().toString();
+            result.append("            @Override\n");
+            result.append("            public ").append(member.getReturnType()).append(' ').append(name).append("() {\n");
+            result.append("                return ").append(createConstant(values.get(name).getValue())).append(";\n");
+            result.append("            }\n");
+        }
+        result.append("        }");
+        return result.toString();
+    }
+
+    /**
+     * Generates source of annotation value: class literal, enum constant or primitive and string constant
+     */
+    private String createConstant(Object value) {
+        if (value instanceof TypeMirror) {
+            return erasure((TypeMirror) value) + ".class";
+        }
+        if (value instanceof VariableElement) {
+            VariableElement constant = (VariableElement) value;
+            return ((TypeElement) constant.getEnclosingElement()).getQualifiedName() + "." + constant.getSimpleName();
+        }
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    /**
+     * Generates creation of the filter if it is public class with public default constructor
+     * @return source of the filter creation or null if filter should be created with reflection
+     */
+    private String createFilter(TypeMirror filter) {
+        Element element = processingEnv.getTypeUtils().asElement(filter);
+        if (!(element instanceof TypeElement) || element.getModifiers().contains(Modifier.ABSTRACT)) return null;
+        Element enclosing = element;
+        while (enclosing instanceof TypeElement) {
+            if (!enclosing.getModifiers().contains(Modifier.PUBLIC)) return null;
+            if (enclosing != element && !element.getModifiers().contains(Modifier.STATIC)) return null;
+            enclosing = enclosing.getEnclosingElement();
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return "new " + erasure(filter) + "()";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Generates invoker of the public method of the listener that accepts event and returns boolean
+     * @return source of the invoker or null if there is no such method
+     */
+    private String createFilterInvoker(TypeElement listener, ExecutableElement handler, String name,
+                                       TypeMirror eventType) {
+        //filter method is looked up in the class that declares handler, the same way as on subscription
+        TypeElement declaring = (TypeElement) handler.getEnclosingElement();
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(listener);
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(declaring))) {
+            if (!method.getSimpleName().contentEquals(name) || method.getParameters().size() != 1) continue;
+            if (!method.getModifiers().contains(Modifier.PUBLIC)) continue;
+            TypeMirror returnType = method.getReturnType();
+            if (returnType.getKind() != TypeKind.BOOLEAN && !"java.lang.Boolean".equals(returnType.toString())) continue;
+            TypeMirror argument = erasureType(method.getParameters().get(0).asType());
+            if (!processingEnv.getTypeUtils().isAssignable(erasureType(eventType), argument)) continue;
+            if (!isAccessible(argument, packageElement)) return null;
+            return createInvoker(listener, method, method.getParameters(), -1);
+        }
+        return null;
+    }
+
+    private String createMethodLookup(TypeElement listener, ExecutableElement method) {
+        StringBuilder result = new StringBuilder();
+        result.append(erasure(listener.asType())).append(".class.getMethod(\"")
+              .append(method.getSimpleName()).append('"');
+        for (VariableElement parameter : method.getParameters()) {
+            result.append(", ").append(erasure(parameter.asType())).append(".class");
+        }
+        return result.append(')').toString();
+    }
+
+    /**
+     * Generates invoker that calls the method directly, passing event and event source arguments
+     * @return source of the invoker
+     */
+    private String createInvoker(TypeElement listener, ExecutableElement method,
+                                 List<? extends VariableElement> parameters, int sourceParameter) {
+        StringBuilder arguments = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) arguments.append(", ");
+            String argument = i == sourceParameter ? "source" : "event";
+            arguments.append('(').append(boxedErasure(parameters.get(i).asType())).append(") ").append(argument);
+        }
+
+        String call;
+        if (method.getModifiers().contains(Modifier.STATIC)) {
+            call = erasure(listener.asType()) + "." + method.getSimpleName() + "(" + arguments + ")";
+        } else {
+            call = "((" + erasure(listener.asType()) + ") target)." + method.getSimpleName() + "(" + arguments + ")";
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append("        new com.elusive_code.newsboy.HandlerInvoker() {\n");
+        result.append("            @Override\n");
+        result.append("            public Object invoke(Object target, Object event, ")
+              .append("com.elusive_code.newsboy.EventSource source) throws Throwable {\n");
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            result.append("                ").append(call).append(";\n");
+            result.append("                return null;\n");
+        } else {
+            result.append("                return ").append(call).append(";\n");
+        }
+        result.append("            }\n");
+        result.append("        }");
+        return result.toString();
+    }
+
+    private TypeMirror erasureType(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    private String erasure(TypeMirror type) {
+        return erasureType(type).toString();
+    }
+
+    private String boxedErasure(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return erasure(type);
+    }
+
+    /**
+     * Generated parts of the index for single event handling method
+     */
+    private static class Handler {
+        private String lookup;
+        private String invoker;
+        private String subscribe;
+        private String eventType;
+        private int    eventParameter;
+        private int    sourceParameter;
+        private String filter;
+        private String filterInvoker;
+    }
+}
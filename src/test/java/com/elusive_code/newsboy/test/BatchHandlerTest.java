@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.EventNotifierTask;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@RunWith(JUnit4.class)
+public class BatchHandlerTest {
+
+    private int events = 1000;
+
+    @Test
+    public void testBatchSize() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        SizeListener listener = new SizeListener(events);
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            futures.addAll(eventService.publish("event " + i));
+            //should be ignored by the listener
+            eventService.publish(i);
+        }
+        Assert.assertTrue("Not all events were delivered", listener.latch.await(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(events, futures.size());
+        for (NotificationFuture future : futures) {
+            Assert.assertEquals(Boolean.TRUE, future.get(1, TimeUnit.SECONDS));
+        }
+        synchronized (listener) {
+            Assert.assertEquals(events, listener.received.size());
+            Assert.assertTrue("Batch size exceeded", listener.maxBatch <= 10);
+        }
+    }
+
+    @Test
+    public void testBatchDelay() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        DelayListener listener = new DelayListener();
+        eventService.subscribe(listener);
+
+        eventService.publish("event 1");
+        eventService.publish("event 2");
+        eventService.post("event 3");
+
+        List<String> batch = listener.batches.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull("Batch wasn't delivered after delay", batch);
+        int delivered = batch.size();
+        while (delivered < 3) {
+            batch = listener.batches.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull("Batch wasn't delivered after delay", batch);
+            delivered += batch.size();
+        }
+        Assert.assertEquals(3, delivered);
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        DelayListener listener = new DelayListener();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            futures.addAll(eventService.publishOrdered("event " + i));
+        }
+        //ordered events are not held for delay, otherwise this would take too long
+        List<String> received = new ArrayList<>();
+        while (received.size() < events) {
+            List<String> batch = listener.batches.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull("Ordered events were not delivered", batch);
+            received.addAll(batch);
+        }
+        for (int i = 0; i < events; i++) {
+            Assert.assertEquals("event " + i, received.get(i));
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService();
+        ErrorListener listener = new ErrorListener();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = eventService.publish("event");
+        Assert.assertEquals(1, futures.size());
+        try {
+            futures.get(0).get(5, TimeUnit.SECONDS);
+            Assert.fail("Exception expected");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+            Assert.assertNotNull(((EventNotifierTask) futures.get(0)).getEventStackTrace());
+        }
+    }
+
+    public static class SizeListener {
+
+        private CountDownLatch latch;
+        private List<String>   received = new ArrayList<>();
+        private int            maxBatch;
+
+        public SizeListener(int events) {
+            this.latch = new CountDownLatch(events);
+        }
+
+        @Subscribe(batchSize = 10, batchDelay = 20)
+        public synchronized boolean onEvents(List<String> events) {
+            received.addAll(events);
+            maxBatch = Math.max(maxBatch, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                latch.countDown();
+            }
+            return true;
+        }
+    }
+
+    public static class DelayListener {
+
+        private BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+
+        @Subscribe(batchSize = 1000, batchDelay = 100)
+        public void onEvents(List<String> events) {
+            batches.add(events);
+        }
+    }
+
+    public static class ErrorListener {
+
+        @Subscribe(batchSize = 10)
+        public void onEvents(List<String> events) {
+            throw new IllegalStateException("some error");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class BatchTest {
+
+    private int eventAmount = 10000;
+
+    @Test
+    public void testPublishAll() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        List<Object> events = new ArrayList<>();
+        for (int i = 0; i < eventAmount; i++) {
+            events.add(i % 2 == 0 ? (Object) i : "event " + i);
+        }
+        events.add(null);
+
+        List<NotificationFuture> notifications = eventService.publishAll(events);
+        //every event notifies object handler, numbers also notify number handler
+        Assert.assertEquals(eventAmount + eventAmount / 2, notifications.size());
+        for (NotificationFuture f : notifications) {
+            f.get();
+        }
+        Assert.assertEquals(eventAmount, listener.objects.get());
+        Assert.assertEquals(eventAmount / 2, listener.numbers.get());
+    }
+
+    @Test
+    public void testPublishAllOrdered() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        OrderListener listener = new OrderListener();
+        eventService.subscribe(listener);
+
+        List<Integer> events = new ArrayList<>();
+        for (int i = 0; i < eventAmount; i++) {
+            events.add(i);
+        }
+
+        List<NotificationFuture> notifications = eventService.publishAllOrdered(events);
+        notifications.addAll(eventService.publishOrdered(eventAmount));
+        for (NotificationFuture f : notifications) {
+            f.get();
+        }
+        Assert.assertEquals(eventAmount + 1, listener.lastOrder);
+    }
+
+    public static class Listener {
+
+        private AtomicInteger objects = new AtomicInteger();
+        private AtomicInteger numbers = new AtomicInteger();
+
+        @Subscribe
+        public void onEvent(Object event) {
+            objects.incrementAndGet();
+        }
+
+        @Subscribe
+        public void onNumber(Number event) {
+            numbers.incrementAndGet();
+        }
+    }
+
+    public static class OrderListener {
+
+        private int lastOrder;
+
+        @Subscribe
+        public void onEvent(Integer event) {
+            Assert.assertEquals(lastOrder, event.intValue());
+            lastOrder++;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.EventQueueFullException;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.OverflowPolicy;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class BoundedQueueTest {
+
+    @Test
+    public void testDropNewest() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.DROP_NEWEST);
+        NotificationFuture queued = fixture.eventService.publish("queued").get(0);
+        NotificationFuture dropped = fixture.eventService.publish("dropped").get(0);
+
+        Assert.assertTrue(dropped.isCancelled());
+        fixture.release();
+        Assert.assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(fixture.listener.threads.containsKey("dropped"));
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.DROP_OLDEST);
+        NotificationFuture dropped = fixture.eventService.publish("dropped").get(0);
+        NotificationFuture queued = fixture.eventService.publish("queued").get(0);
+
+        Assert.assertTrue(dropped.isCancelled());
+        Assert.assertEquals(1, fixture.eventService.getQueueDepth());
+        fixture.release();
+        Assert.assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(fixture.listener.threads.containsKey("dropped"));
+    }
+
+    @Test
+    public void testFail() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.FAIL);
+        NotificationFuture queued = fixture.eventService.publish("queued").get(0);
+        try {
+            fixture.eventService.publish("failed");
+            Assert.fail("Exception expected");
+        } catch (EventQueueFullException ex) {
+            //expected
+        }
+        fixture.release();
+        Assert.assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCallerRuns() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.CALLER_RUNS);
+        fixture.eventService.publish("queued");
+        NotificationFuture inline = fixture.eventService.publish("inline").get(0);
+
+        Assert.assertTrue(inline.isDone());
+        Assert.assertSame(Thread.currentThread(), fixture.listener.threads.get("inline"));
+        fixture.release();
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        final Fixture fixture = new Fixture(OverflowPolicy.BLOCK);
+        fixture.eventService.publish("queued");
+
+        final CountDownLatch published = new CountDownLatch(1);
+        Thread publisher = new Thread() {
+            @Override
+            public void run() {
+                fixture.eventService.publish("blocked");
+                published.countDown();
+            }
+        };
+        publisher.start();
+
+        Assert.assertFalse("Publisher wasn't blocked", published.await(200, TimeUnit.MILLISECONDS));
+        fixture.release();
+        Assert.assertTrue("Publisher wasn't released", published.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOrderedFail() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.FAIL);
+        //first event is scheduled right away, second one waits for its turn and takes the slot
+        NotificationFuture first = fixture.eventService.publishOrdered("first").get(0);
+        NotificationFuture second = fixture.eventService.publishOrdered("second").get(0);
+        Assert.assertEquals(1, fixture.eventService.getQueueDepth());
+        try {
+            fixture.eventService.publishOrdered("failed");
+            Assert.fail("Exception expected");
+        } catch (EventQueueFullException ex) {
+            //expected
+        }
+        fixture.release();
+        Assert.assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(fixture.listener.threads.containsKey("failed"));
+    }
+
+    @Test
+    public void testOrderedDropNewest() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.DROP_NEWEST);
+        fixture.eventService.publishOrdered("first");
+        NotificationFuture second = fixture.eventService.publishOrdered("second").get(0);
+        NotificationFuture dropped = fixture.eventService.publishOrdered("dropped").get(0);
+
+        Assert.assertTrue(dropped.isCancelled());
+        fixture.release();
+        Assert.assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(fixture.listener.threads.containsKey("dropped"));
+        Assert.assertEquals(0, fixture.eventService.getQueueDepth());
+    }
+
+    @Test
+    public void testReservedSlots() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.DROP_NEWEST);
+        fixture.eventService.publishOrdered("first");
+        NotificationFuture second = fixture.eventService.publishOrdered("second").get(0);
+        //slot is taken by ordered event waiting for its turn
+        NotificationFuture dropped = fixture.eventService.publish("dropped").get(0);
+
+        Assert.assertTrue(dropped.isCancelled());
+        Assert.assertEquals(1, fixture.eventService.getQueueDepth());
+        fixture.release();
+        Assert.assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(fixture.listener.threads.containsKey("dropped"));
+    }
+
+    @Test
+    public void testOrderedBlock() throws Exception {
+        final Fixture fixture = new Fixture(OverflowPolicy.CALLER_RUNS);
+        fixture.eventService.publishOrdered("first");
+        fixture.eventService.publishOrdered("second");
+
+        //ordered event can't be handled out of turn, so its publisher waits
+        final CountDownLatch published = new CountDownLatch(1);
+        Thread publisher = new Thread() {
+            @Override
+            public void run() {
+                fixture.eventService.publishOrdered("blocked");
+                published.countDown();
+            }
+        };
+        publisher.start();
+
+        Assert.assertFalse("Publisher wasn't blocked", published.await(200, TimeUnit.MILLISECONDS));
+        fixture.release();
+        Assert.assertTrue("Publisher wasn't released", published.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPost() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.DROP_NEWEST);
+        Listener[] listeners = new Listener[4];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new Listener();
+            fixture.eventService.subscribe(listeners[i]);
+        }
+        //split notifications are queued by the pool, so they are never dropped
+        fixture.eventService.post("posted");
+        fixture.release();
+        for (Listener listener : listeners) {
+            for (int i = 0; i < 100 && !listener.threads.containsKey("posted"); i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(listener.threads.containsKey("posted"));
+        }
+    }
+
+    @Test
+    public void testConflatedDropped() throws Exception {
+        Fixture fixture = new Fixture(OverflowPolicy.DROP_NEWEST);
+        ConflatingListener conflating = new ConflatingListener();
+        fixture.eventService.subscribe(conflating);
+        NotificationFuture queued = fixture.eventService.publish("queued").get(0);
+        NotificationFuture dropped = fixture.eventService.publish(1).get(0);
+
+        Assert.assertTrue(dropped.isCancelled());
+        fixture.release();
+        Assert.assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+
+        //dropped notification doesn't take newer events of the handler
+        NotificationFuture next = fixture.eventService.publish(2).get(0);
+        Assert.assertNotSame(dropped, next);
+        Assert.assertEquals(2, next.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList(2), conflating.received);
+    }
+
+    @Test
+    public void testOrderedFanOutDropOldest() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(1, 4, OverflowPolicy.DROP_OLDEST);
+        eventService.setFanOutGranularity(2);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<FanOutListener> listeners = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            FanOutListener listener = new FanOutListener(entered, release);
+            listeners.add(listener);
+            eventService.subscribe(listener);
+        }
+
+        List<NotificationFuture> first = eventService.publishOrdered(Listener.BLOCK);
+        Assert.assertEquals(16, first.size());
+        Assert.assertTrue("Listener wasn't notified", entered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            eventService.publish("event");
+        }
+        release.countDown();
+
+        //notifications are either handled or dropped, none of them hangs
+        for (NotificationFuture future : first) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (CancellationException ex) {
+                //dropped
+            }
+        }
+        //and ordered delivery proceeds
+        List<NotificationFuture> next = eventService.publishOrdered("next");
+        Assert.assertEquals(16, next.size());
+        for (NotificationFuture future : next) {
+            Assert.assertEquals("next", future.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Service with single slot queue, which has listener blocked by the first event
+     */
+    private static class Fixture {
+
+        private AsyncEventService eventService;
+        private Listener          listener = new Listener();
+
+        public Fixture(OverflowPolicy policy) throws InterruptedException {
+            eventService = new AsyncEventService(1, 1, policy);
+            eventService.subscribe(listener);
+            List<NotificationFuture> futures = eventService.publish(Listener.BLOCK);
+            Assert.assertEquals(1, futures.size());
+            Assert.assertTrue("Listener wasn't notified", listener.entered.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, eventService.getQueueDepth());
+        }
+
+        public void release() {
+            listener.release.countDown();
+        }
+    }
+
+    public static class Listener {
+
+        public static final String BLOCK = "block";
+
+        private CountDownLatch      entered = new CountDownLatch(1);
+        private CountDownLatch      release = new CountDownLatch(1);
+        private Map<String, Thread> threads = new ConcurrentHashMap<>();
+
+        @Subscribe
+        public String onEvent(String event) throws InterruptedException {
+            threads.put(event, Thread.currentThread());
+            if (BLOCK.equals(event)) {
+                entered.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return event;
+        }
+    }
+
+    public static class ConflatingListener {
+
+        private List<Integer> received = new CopyOnWriteArrayList<>();
+
+        @Subscribe(conflate = true)
+        public Integer onEvent(Integer event) {
+            received.add(event);
+            return event;
+        }
+    }
+
+    public static class FanOutListener {
+
+        private CountDownLatch entered;
+        private CountDownLatch release;
+
+        public FanOutListener(CountDownLatch entered, CountDownLatch release) {
+            this.entered = entered;
+            this.release = release;
+        }
+
+        @Subscribe
+        public String onEvent(String event) throws InterruptedException {
+            if (Listener.BLOCK.equals(event)) {
+                entered.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return event;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.Conflatable;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class ConflationTest {
+
+    @Test
+    public void testConflate() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        ProgressListener listener = new ProgressListener();
+        eventService.subscribe(listener);
+
+        NotificationFuture first = eventService.publish(0).get(0);
+        Assert.assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+
+        //first notification is running, the rest replace each other while waiting
+        Set<NotificationFuture> futures = Collections.newSetFromMap(new IdentityHashMap<NotificationFuture, Boolean>());
+        for (int i = 1; i <= 100; i++) {
+            futures.addAll(eventService.publish(i));
+        }
+        Assert.assertEquals(1, futures.size());
+        listener.release.countDown();
+
+        Assert.assertEquals(0, first.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(100, futures.iterator().next().get(5, TimeUnit.SECONDS));
+        synchronized (listener) {
+            Assert.assertEquals(Arrays.asList(0, 100), listener.received);
+        }
+    }
+
+    @Test
+    public void testConflationKey() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        TickListener listener = new TickListener();
+        eventService.subscribe(listener);
+
+        eventService.publish(new Tick("A", 1));
+        Assert.assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        eventService.publish(new Tick("A", 2));
+        eventService.publish(new Tick("B", 1));
+        eventService.publish(new Tick("A", 3));
+        List<NotificationFuture> last = eventService.publish(new Tick("B", 2));
+        listener.release.countDown();
+
+        last.get(0).get(5, TimeUnit.SECONDS);
+        synchronized (listener) {
+            Assert.assertEquals(Arrays.asList("A1", "A3", "B2"), listener.received);
+        }
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        ProgressListener listener = new ProgressListener();
+        listener.release.countDown();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.addAll(eventService.publishOrdered(i));
+        }
+        for (NotificationFuture future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        //ordered events are never conflated
+        synchronized (listener) {
+            Assert.assertEquals(100, listener.received.size());
+        }
+    }
+
+    public static class ProgressListener {
+
+        private List<Integer>  received = new ArrayList<>();
+        private CountDownLatch started  = new CountDownLatch(1);
+        private CountDownLatch release  = new CountDownLatch(1);
+
+        @Subscribe(conflate = true, serial = true)
+        public Integer onProgress(Integer progress) throws InterruptedException {
+            synchronized (this) {
+                received.add(progress);
+            }
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return progress;
+        }
+    }
+
+    public static class Tick implements Conflatable {
+
+        private String instrument;
+        private int    price;
+
+        public Tick(String instrument, int price) {
+            this.instrument = instrument;
+            this.price = price;
+        }
+
+        @Override
+        public Object getConflationKey() {
+            return instrument;
+        }
+
+        @Override
+        public String toString() {
+            return instrument + price;
+        }
+    }
+
+    public static class TickListener {
+
+        private List<String>   received = new ArrayList<>();
+        private CountDownLatch started  = new CountDownLatch(1);
+        private CountDownLatch release  = new CountDownLatch(1);
+
+        @Subscribe(serial = true)
+        public void onTick(Tick tick) throws InterruptedException {
+            synchronized (this) {
+                received.add(tick.toString());
+            }
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -49,6 +49,24 @@ public class EventHierarchyTest {
     }
 
 
+    @Test
+    public void testSubscriptionChanges() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        Interface1Listener listener = new Interface1Listener();
+        Assert.assertEquals(0, eventService.publish(new ChildEvent1()).size());
+        Assert.assertEquals(0, eventService.publish(new Object()).size());
+
+        //resolved handlers of subclasses are evicted when handler of their parent is added or removed
+        eventService.subscribe(listener);
+        Assert.assertEquals(1, eventService.publish(new ChildEvent1()).size());
+        Assert.assertEquals(1, eventService.publish(new ChildEvent1_2()).size());
+        Assert.assertEquals(0, eventService.publish(new Object()).size());
+
+        eventService.unsubscribe(listener);
+        Assert.assertEquals(0, eventService.publish(new ChildEvent1()).size());
+        Assert.assertEquals(0, eventService.publish(new ChildEvent1_2()).size());
+    }
+
     @Test
     public void testObjectEvent() throws Exception {
         Set<Method> triggeredMethods = new HashSet<>();
@@ -236,4 +254,10 @@ public class EventHierarchyTest {
 
     public static class ChildEvent2 extends ParentEvent2 {}
 
+    public static class Interface1Listener {
+
+        @Subscribe
+        public void onEvent(EventInterface1 event) {}
+    }
+
 }
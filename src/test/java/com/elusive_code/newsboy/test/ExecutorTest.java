@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.NotificationExecutors;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@RunWith(JUnit4.class)
+public class ExecutorTest {
+
+    private int listeners = 10;
+    private int events    = 100;
+
+    @Test
+    public void testExecutorService() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "test-notifier");
+            }
+        });
+        try {
+            AsyncEventService eventService = new AsyncEventService(executor);
+            List<Listener> subscribed = subscribe(eventService);
+
+            List<NotificationFuture> futures = new ArrayList<>();
+            for (int i = 0; i < events; i++) {
+                futures.addAll(eventService.publish("event " + i));
+            }
+            futures.addAll(eventService.publishAll(events("batch ", events)));
+            for (NotificationFuture future : futures) {
+                Assert.assertEquals("test-notifier", future.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(listeners * events * 2, futures.size());
+            for (Listener listener : subscribed) {
+                Assert.assertEquals(events * 2, listener.count);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameThread() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(NotificationExecutors.sameThread());
+        List<Listener> subscribed = subscribe(eventService);
+        String thread = Thread.currentThread().getName();
+
+        List<NotificationFuture> futures = new ArrayList<>();
+        futures.addAll(eventService.publish("event"));
+        futures.addAll(eventService.publishOrdered("ordered"));
+        futures.addAll(eventService.publishAll(events("batch ", events)));
+        eventService.post("posted");
+        for (NotificationFuture future : futures) {
+            Assert.assertTrue(future.isDone());
+            Assert.assertEquals(thread, future.get());
+        }
+        for (Listener listener : subscribed) {
+            Assert.assertEquals(events + 3, listener.count);
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService(NotificationExecutors.sameThread());
+        ErrorListener listener = new ErrorListener();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = eventService.publish("event");
+        try {
+            futures.get(0).get();
+            Assert.fail("Exception expected");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        ExecutorService executor;
+        try {
+            executor = NotificationExecutors.virtualThreads();
+        } catch (UnsupportedOperationException ex) {
+            Assume.assumeNoException(ex);
+            return;
+        }
+        try {
+            AsyncEventService eventService = new AsyncEventService(executor);
+            List<Listener> subscribed = subscribe(eventService);
+            List<NotificationFuture> futures = eventService.publish("event");
+            for (NotificationFuture future : futures) {
+                Assert.assertNotNull(future.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(subscribed.size(), futures.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<Listener> subscribe(AsyncEventService eventService) {
+        List<Listener> subscribed = new ArrayList<>();
+        for (int i = 0; i < listeners; i++) {
+            Listener listener = new Listener();
+            subscribed.add(listener);
+            eventService.subscribe(listener);
+        }
+        return subscribed;
+    }
+
+    private List<String> events(String prefix, int count) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(prefix + i);
+        }
+        return result;
+    }
+
+    public static class Listener {
+
+        private int count;
+
+        @Subscribe
+        public synchronized String onEvent(String event) {
+            count++;
+            return Thread.currentThread().getName();
+        }
+    }
+
+    public static class ErrorListener {
+
+        @Subscribe
+        public void onEvent(String event) {
+            throw new IllegalStateException("some error");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class FanOutTest {
+
+    private static final int LISTENERS = 1000;
+
+    @Test
+    public void testFanOut() throws Exception {
+        check(new AsyncEventService(), 10, false);
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        check(new AsyncEventService(), 10, true);
+    }
+
+    @Test
+    public void testForkEveryNotification() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        eventService.setFanOutGranularity(0);
+        check(eventService, 10, false);
+    }
+
+    @Test
+    public void testPublishAll() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        List<Listener> listeners = subscribe(eventService);
+
+        List<Integer> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(i);
+        }
+        List<NotificationFuture> futures = eventService.publishAll(events);
+        Assert.assertEquals(LISTENERS * events.size(), futures.size());
+        for (NotificationFuture future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        for (Listener listener : listeners) {
+            Assert.assertEquals(events.size(), listener.received.get());
+        }
+    }
+
+    @Test
+    public void testPost() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        List<Listener> listeners = subscribe(eventService);
+
+        for (int i = 0; i < 10; i++) {
+            eventService.post(i);
+        }
+        for (Listener listener : listeners) {
+            for (int i = 0; i < 500 && listener.received.get() < 10; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(10, listener.received.get());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeGranularity() {
+        new AsyncEventService().setFanOutGranularity(-1);
+    }
+
+    private List<Listener> subscribe(AsyncEventService eventService) {
+        List<Listener> listeners = new ArrayList<>();
+        for (int i = 0; i < LISTENERS; i++) {
+            Listener listener = new Listener();
+            listeners.add(listener);
+            eventService.subscribe(listener);
+        }
+        return listeners;
+    }
+
+    private void check(AsyncEventService eventService, int events, boolean ordered) throws Exception {
+        List<Listener> listeners = subscribe(eventService);
+
+        List<NotificationFuture> futures = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            futures.addAll(ordered ? eventService.publishOrdered(i) : eventService.publish(i));
+        }
+        Assert.assertEquals(LISTENERS * events, futures.size());
+        for (NotificationFuture future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        for (Listener listener : listeners) {
+            Assert.assertEquals(events, listener.received.get());
+        }
+    }
+
+    public static class Listener {
+
+        private AtomicInteger received = new AtomicInteger();
+
+        @Subscribe
+        public void onEvent(Integer event) {
+            received.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.EventFilter;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class FilterTest {
+
+    @Test
+    public void testFilter() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        FilteredListener listener = new FilteredListener();
+        eventService.subscribe(listener);
+
+        //rejected events don't create notifications at all
+        Assert.assertTrue(eventService.publish(-1).isEmpty());
+        Assert.assertTrue(eventService.publish("ignored").isEmpty());
+
+        List<NotificationFuture> futures = new ArrayList<>();
+        futures.addAll(eventService.publish(1));
+        futures.addAll(eventService.publish("important"));
+        futures.addAll(eventService.publishAll(Arrays.asList(-2, 2, "ignored", "important")));
+        Assert.assertEquals(4, futures.size());
+        for (NotificationFuture future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        eventService.post(-3);
+        eventService.post("ignored");
+        eventService.post(3);
+        eventService.post("important");
+        Assert.assertTrue(listener.posted.await(5, TimeUnit.SECONDS));
+
+        synchronized (listener) {
+            Collections.sort(listener.numbers);
+            Assert.assertEquals(Arrays.asList(1, 2, 3), listener.numbers);
+            Assert.assertEquals(3, listener.strings.size());
+        }
+    }
+
+    @Test
+    public void testPostFilteredByPublisher() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        ThreadListener listener = new ThreadListener();
+        eventService.subscribe(listener);
+
+        eventService.post(1);
+        eventService.post(2);
+        Assert.assertTrue(listener.handled.await(5, TimeUnit.SECONDS));
+        synchronized (listener) {
+            Assert.assertEquals(Arrays.asList(Thread.currentThread(), Thread.currentThread()), listener.filtered);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingFilterMethod() {
+        new AsyncEventService().subscribe(new MissingFilterListener());
+    }
+
+    public static class PositiveFilter implements EventFilter<Integer> {
+
+        @Override
+        public boolean accept(Integer event) {
+            return event > 0;
+        }
+    }
+
+    public static class FilteredListener {
+
+        private List<Integer>  numbers = new ArrayList<>();
+        private List<String>   strings = new ArrayList<>();
+        private CountDownLatch posted  = new CountDownLatch(2);
+
+        @Subscribe(filter = PositiveFilter.class)
+        public synchronized void onNumber(Integer event) {
+            numbers.add(event);
+            if (event == 3) posted.countDown();
+        }
+
+        @Subscribe(filterMethod = "isImportant")
+        public synchronized void onString(String event) {
+            strings.add(event);
+            if (strings.size() == 3) posted.countDown();
+        }
+
+        public boolean isImportant(String event) {
+            return event.startsWith("important");
+        }
+    }
+
+    public static class ThreadListener {
+
+        private List<Thread>   filtered = new ArrayList<>();
+        private CountDownLatch handled  = new CountDownLatch(1);
+
+        @Subscribe(filterMethod = "isEven")
+        public void onNumber(Integer event) {
+            handled.countDown();
+        }
+
+        public synchronized boolean isEven(Integer event) {
+            filtered.add(Thread.currentThread());
+            return event % 2 == 0;
+        }
+    }
+
+    public static class MissingFilterListener {
+
+        @Subscribe(filterMethod = "isImportant")
+        public void onString(String event) {
+        }
+
+        public boolean isImportant(Integer event) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.OverflowPolicy;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class InlineTest {
+
+    @Test
+    public void testPublishingThread() throws Exception {
+        //with bounded queue events are dispatched by publishing thread
+        AsyncEventService eventService = new AsyncEventService(1, 10, OverflowPolicy.BLOCK);
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = eventService.publish("event");
+        Assert.assertEquals(1, futures.size());
+        Assert.assertTrue("Inline notification is not completed", futures.get(0).isDone());
+        Assert.assertEquals("event", futures.get(0).get());
+        synchronized (listener) {
+            Assert.assertEquals(1, listener.threads.size());
+            Assert.assertSame(Thread.currentThread(), listener.threads.get(0));
+        }
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.addAll(eventService.publishOrdered("event " + i));
+        }
+        for (NotificationFuture future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        synchronized (listener) {
+            Assert.assertEquals(100, listener.events.size());
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals("event " + i, listener.events.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSerial() {
+        new AsyncEventService().subscribe(new SerialListener());
+    }
+
+    public static class Listener {
+
+        private List<String> events  = new ArrayList<>();
+        private List<Thread> threads = new ArrayList<>();
+
+        @Subscribe(inline = true)
+        public synchronized String onEvent(String event) {
+            events.add(event);
+            threads.add(Thread.currentThread());
+            return event;
+        }
+    }
+
+    public static class SerialListener {
+
+        @Subscribe(inline = true, serial = true)
+        public void onEvent(String event) {
+        }
+    }
+}
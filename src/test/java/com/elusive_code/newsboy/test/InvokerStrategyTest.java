@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.EventSource;
+import com.elusive_code.newsboy.InvokerStrategy;
+import com.elusive_code.newsboy.Subscribe;
+import com.elusive_code.newsboy.WeakEventHandler;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class InvokerStrategyTest {
+
+    private EventSource source = new AsyncEventService();
+
+    @Test
+    public void testReflection() throws Throwable {
+        test(InvokerStrategy.REFLECTION);
+    }
+
+    @Test
+    public void testMethodHandle() throws Throwable {
+        test(InvokerStrategy.METHOD_HANDLE);
+    }
+
+    private void test(InvokerStrategy strategy) throws Throwable {
+        Listener listener = new Listener();
+
+        Assert.assertEquals("noArgs", handler(listener, "noArgs", strategy).handleEvent("event", source));
+        Assert.assertEquals("event", handler(listener, "event", strategy, String.class).handleEvent("event", source));
+        Assert.assertEquals(42, handler(listener, "primitive", strategy, Integer.class).handleEvent(41, source));
+        Assert.assertNull(handler(listener, "noResult", strategy, Object.class).handleEvent("event", source));
+        Assert.assertSame(source, handler(listener, "eventAndSource", strategy, String.class, EventSource.class)
+                .handleEvent("event", source));
+        Assert.assertSame(source, handler(listener, "sourceAndEvent", strategy, EventSource.class, String.class)
+                .handleEvent("event", source));
+        Assert.assertEquals("static", handler(listener, "staticMethod", strategy, String.class)
+                .handleEvent("static", source));
+
+        try {
+            handler(listener, "error", strategy, String.class).handleEvent("event", source);
+            Assert.fail("Exception expected");
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("event", ex.getMessage());
+        }
+    }
+
+    private WeakEventHandler handler(Object listener, String name, InvokerStrategy strategy, Class... args)
+            throws NoSuchMethodException {
+        return new WeakEventHandler(listener, Listener.class.getMethod(name, args), strategy);
+    }
+
+    public static class Listener {
+
+        @Subscribe
+        public String noArgs() {
+            return "noArgs";
+        }
+
+        @Subscribe
+        public String event(String event) {
+            return event;
+        }
+
+        @Subscribe
+        public int primitive(Integer event) {
+            return event + 1;
+        }
+
+        @Subscribe
+        public void noResult(Object event) {
+        }
+
+        @Subscribe
+        public EventSource eventAndSource(String event, EventSource source) {
+            Assert.assertEquals("event", event);
+            return source;
+        }
+
+        @Subscribe(eventSourceParameter = 0)
+        public EventSource sourceAndEvent(EventSource source, String event) {
+            Assert.assertEquals("event", event);
+            return source;
+        }
+
+        @Subscribe
+        public static String staticMethod(String event) {
+            return event;
+        }
+
+        @Subscribe
+        public void error(String event) {
+            throw new IllegalStateException(event);
+        }
+    }
+}
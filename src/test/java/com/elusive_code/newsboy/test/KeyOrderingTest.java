@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class KeyOrderingTest {
+
+    private int keys = 10;
+    private int eventAmount = 1000;
+    private int parallelism = 10;
+
+    @Test
+    public void testOrderingPerKey() throws InterruptedException, ExecutionException {
+        AsyncEventService eventService = new AsyncEventService(parallelism);
+        OrderListener listener = new OrderListener(keys);
+        eventService.subscribe(listener);
+
+        LinkedList<NotificationFuture> results = new LinkedList<>();
+        for (int i = 0; i < eventAmount; i++) {
+            for (int key = 0; key < keys; key++) {
+                results.addAll(eventService.publishOrdered(key, new KeyedEvent(key, i)));
+            }
+        }
+
+        for (NotificationFuture future : results) {
+            future.get();
+        }
+        for (int key = 0; key < keys; key++) {
+            Assert.assertEquals(eventAmount, listener.lastOrder[key]);
+        }
+    }
+
+    @Test
+    public void testConcurrentPublishers() throws Exception {
+        final AsyncEventService eventService = new AsyncEventService(parallelism);
+        OrderListener listener = new OrderListener(keys);
+        eventService.subscribe(listener);
+
+        //every publisher thread publishes its own sequence, all with the same ordering key
+        final ConcurrentLinkedQueue<NotificationFuture> results = new ConcurrentLinkedQueue<>();
+        Thread[] publishers = new Thread[keys];
+        for (int i = 0; i < keys; i++) {
+            final int key = i;
+            publishers[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int order = 0; order < eventAmount; order++) {
+                        results.addAll(eventService.publishOrdered("same key", new KeyedEvent(key, order)));
+                    }
+                }
+            };
+            publishers[i].start();
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+
+        for (NotificationFuture future : results) {
+            future.get();
+        }
+        for (int key = 0; key < keys; key++) {
+            Assert.assertEquals(eventAmount, listener.lastOrder[key]);
+        }
+    }
+
+    @Test
+    public void testKeysAreIndependent() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(parallelism);
+        BlockingListener listener = new BlockingListener();
+        eventService.subscribe(listener);
+
+        //first key waits until event of the second one is delivered
+        eventService.publishOrdered(0, new KeyedEvent(0, 0));
+        eventService.publishOrdered(0, new KeyedEvent(0, 1));
+        eventService.publishOrdered(1, new KeyedEvent(1, 0));
+
+        Assert.assertTrue("Events with different keys block each other",
+                          listener.finished.await(10, TimeUnit.SECONDS));
+    }
+
+    public static class KeyedEvent {
+        public int key;
+        public int order;
+
+        public KeyedEvent(int key, int order) {
+            this.key = key;
+            this.order = order;
+        }
+    }
+
+    public static class OrderListener {
+
+        private int[] lastOrder;
+
+        public OrderListener(int keys) {
+            this.lastOrder = new int[keys];
+        }
+
+        @Subscribe
+        public void onEvent(KeyedEvent event) {
+            synchronized (this) {
+                Assert.assertEquals("Event ordering test failed for key " + event.key,
+                                    lastOrder[event.key], event.order);
+                lastOrder[event.key]++;
+            }
+        }
+    }
+
+    public static class BlockingListener {
+
+        private CountDownLatch secondKey = new CountDownLatch(1);
+        private CountDownLatch finished  = new CountDownLatch(2);
+
+        @Subscribe
+        public void onEvent(KeyedEvent event) throws InterruptedException {
+            if (event.key == 1) {
+                secondKey.countDown();
+                return;
+            }
+            if (secondKey.await(10, TimeUnit.SECONDS)) {
+                finished.countDown();
+            }
+        }
+    }
+}
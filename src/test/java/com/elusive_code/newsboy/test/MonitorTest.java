@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.HandlerStatistics;
+import com.elusive_code.newsboy.JmxEventServiceMonitor;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@RunWith(JUnit4.class)
+public class MonitorTest {
+
+    @Test
+    public void testStatistics() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService();
+        JmxEventServiceMonitor monitor = new JmxEventServiceMonitor(eventService);
+        eventService.setMonitor(monitor);
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        for (int i = 0; i < 10; i++) {
+            for (NotificationFuture future : eventService.publish("event " + i)) {
+                future.get();
+            }
+        }
+        try {
+            eventService.publish(1).get(0).get();
+            Assert.fail("Exception expected");
+        } catch (ExecutionException ex) {
+            //expected
+        }
+        eventService.post("posted");
+        Assert.assertTrue(listener.posted.await(5, TimeUnit.SECONDS));
+        eventService.publish(new Object());
+
+        Assert.assertEquals(13, monitor.getPublishedEvents());
+        Assert.assertEquals(Long.valueOf(11), monitor.getPublishedEventsByType().get(String.class.getName()));
+        Assert.assertEquals(12, monitor.getNotifications());
+        Assert.assertEquals(1, monitor.getFailures());
+        Assert.assertEquals(eventService.getParallelism(), monitor.getParallelism());
+
+        //post is reported after handling method returns
+        for (int i = 0; i < 100 && statistics(monitor, "onString").getInvocations() < 11; i++) {
+            Thread.sleep(10);
+        }
+        List<HandlerStatistics> statistics = monitor.getHandlerStatistics();
+        Assert.assertEquals(2, statistics.size());
+        HandlerStatistics slow = statistics.get(0);
+        Assert.assertTrue(slow.getMethod(), slow.getMethod().contains("onString"));
+        Assert.assertEquals(11, slow.getInvocations());
+        Assert.assertTrue("Latency is not measured", slow.getMaxMillis() >= 20);
+        Assert.assertTrue(slow.getPercentile99Millis() >= slow.getMedianMillis());
+        Assert.assertEquals(1, statistics(monitor, "onInteger").getFailures());
+
+        monitor.reset();
+        Assert.assertEquals(0, monitor.getPublishedEvents());
+        Assert.assertTrue(monitor.getHandlerStatistics().isEmpty());
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        JmxEventServiceMonitor monitor = new JmxEventServiceMonitor(eventService);
+        eventService.setMonitor(monitor);
+        //listener isn't referenced by the test, so it must not be collected before handlers are counted
+        eventService.subscribeStrong(new Listener());
+        for (NotificationFuture future : eventService.publish("event")) {
+            future.get();
+        }
+
+        ObjectName name = new ObjectName("com.elusive_code.newsboy.test:type=EventService");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        monitor.register(name);
+        try {
+            Assert.assertEquals(1L, server.getAttribute(name, "PublishedEvents"));
+            Assert.assertEquals(2, server.getAttribute(name, "HandlerCount"));
+            CompositeData[] statistics = (CompositeData[]) server.getAttribute(name, "HandlerStatistics");
+            Assert.assertEquals(1, statistics.length);
+            Assert.assertEquals(1L, statistics[0].get("invocations"));
+        } finally {
+            monitor.unregister();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+    }
+
+    private HandlerStatistics statistics(JmxEventServiceMonitor monitor, String method) {
+        for (HandlerStatistics statistics : monitor.getHandlerStatistics()) {
+            if (statistics.getMethod().contains(method)) return statistics;
+        }
+        return new HandlerStatistics(method, 0, 0, 0, 0, 0, 0, new long[0]);
+    }
+
+    public static class Listener {
+
+        private CountDownLatch posted = new CountDownLatch(1);
+
+        @Subscribe
+        public void onString(String event) throws InterruptedException {
+            Thread.sleep(20);
+            if ("posted".equals(event)) posted.countDown();
+        }
+
+        @Subscribe
+        public void onInteger(Integer event) {
+            throw new IllegalStateException("some error");
+        }
+    }
+}
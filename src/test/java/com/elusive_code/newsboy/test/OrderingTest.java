@@ -26,6 +26,8 @@ import org.junit.runners.JUnit4;
 
 import java.util.LinkedList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @RunWith(JUnit4.class)
 public class OrderingTest {
@@ -56,7 +58,8 @@ public class OrderingTest {
         while (future != null) {
             while (!future.isDone()){
                 synchronized (this) {
-                    this.wait();
+                    //listener notifies before its future is done, so wait is bounded to re-check it
+                    this.wait(100);
                 }
             }
             future.get();
@@ -65,6 +68,20 @@ public class OrderingTest {
         System.out.println();
     }
 
+    @Test
+    public void testPreviousCompleted() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(parallelism);
+        CompletionListener listener = new CompletionListener(eventAmount);
+        eventService.subscribe(listener);
+
+        for (int i=0; i<eventAmount; i++){
+            listener.futures.set(i, eventService.publishOrdered(i).get(0));
+        }
+        listener.futures.get(eventAmount - 1).get();
+        Assert.assertEquals("Next event started before future of the previous one was done",
+                            0, listener.notDone.get());
+    }
+
     @Subscribe
     public OrderedEvent onEvent(OrderedEvent event) {
         Assert.assertTrue(
@@ -81,6 +98,24 @@ public class OrderingTest {
         return event;
     }
 
+    public static class CompletionListener {
+
+        private AtomicReferenceArray<NotificationFuture> futures;
+        private AtomicInteger                            notDone = new AtomicInteger();
+
+        public CompletionListener(int eventAmount) {
+            this.futures = new AtomicReferenceArray<>(eventAmount);
+        }
+
+        @Subscribe
+        public void onEvent(Integer order) {
+            //previous event was published before this one, so its future is already set
+            if (order > 0 && !futures.get(order - 1).isDone()) {
+                notDone.incrementAndGet();
+            }
+        }
+    }
+
     public static class OrderedEvent {
         public int order;
 
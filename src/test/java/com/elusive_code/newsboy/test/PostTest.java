@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@RunWith(JUnit4.class)
+public class PostTest {
+
+    private int listeners = 100;
+    private int events = 100;
+
+    @Test
+    public void testPost() throws Exception {
+        Logger.getLogger(AsyncEventService.class.getName()).setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService();
+        CountDownLatch latch = new CountDownLatch(listeners * events);
+
+        Listener[] subscribed = new Listener[listeners];
+        for (int i = 0; i < listeners; i++) {
+            subscribed[i] = new Listener(latch);
+            eventService.subscribe(subscribed[i]);
+        }
+        //failing listener shouldn't prevent others from being notified
+        ErrorListener errorListener = new ErrorListener();
+        eventService.subscribe(errorListener);
+
+        for (int i = 0; i < events; i++) {
+            eventService.post("event " + i);
+        }
+        eventService.post(new Object());
+
+        Assert.assertTrue("Not all listeners were notified", latch.await(10, TimeUnit.SECONDS));
+    }
+
+    public static class Listener {
+
+        private CountDownLatch latch;
+
+        public Listener(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Subscribe
+        public void onEvent(String event) {
+            latch.countDown();
+        }
+    }
+
+    public static class ErrorListener {
+
+        @Subscribe
+        public void onEvent(Object event) {
+            throw new IllegalStateException("some error");
+        }
+    }
+}
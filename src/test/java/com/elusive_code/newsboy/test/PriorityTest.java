@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Priority;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class PriorityTest {
+
+    @Test
+    public void testHandlerPriority() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(1);
+        eventService.setPriorityEnabled(true);
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        //single thread of the pool is busy, backlog of low priority events is waiting
+        eventService.publish(listener.release);
+        Assert.assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        List<NotificationFuture> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.addAll(eventService.publish(new Audit(), Priority.LOW));
+        }
+        futures.addAll(eventService.publish(new Control()));
+        listener.release.countDown();
+
+        for (NotificationFuture future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        synchronized (listener) {
+            Assert.assertEquals(101, listener.received.size());
+            Assert.assertEquals("Control event waited for the backlog", "control", listener.received.get(0));
+        }
+    }
+
+    @Test
+    public void testStarvation() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(1);
+        eventService.setPriorityEnabled(true);
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        eventService.publish(listener.release);
+        Assert.assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        List<NotificationFuture> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.addAll(eventService.publish(new Control(), Priority.HIGH));
+        }
+        futures.addAll(eventService.publish(new Audit()));
+        listener.release.countDown();
+
+        for (NotificationFuture future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        synchronized (listener) {
+            int index = listener.received.indexOf("audit");
+            Assert.assertTrue("Low priority event was starved: " + index, index >= 0 && index <= 16);
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(1);
+        Listener listener = new Listener();
+        listener.release.countDown();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = new ArrayList<>();
+        futures.addAll(eventService.publish(new Audit(), Priority.HIGH));
+        futures.addAll(eventService.publish(new Control()));
+        for (NotificationFuture future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        //priorities are ignored, notifications don't pass through priority queues
+        Assert.assertFalse(eventService.isPriorityEnabled());
+        Assert.assertEquals(0, eventService.getQueueDepth());
+        synchronized (listener) {
+            Assert.assertEquals(2, listener.received.size());
+        }
+
+        eventService.setPriorityEnabled(true);
+        Assert.assertTrue(eventService.isPriorityEnabled());
+        eventService.publish(new Control(), Priority.LOW).get(0).get(5, TimeUnit.SECONDS);
+        eventService.setPriorityEnabled(false);
+        Assert.assertFalse(eventService.isPriorityEnabled());
+    }
+
+    @Test
+    public void testPost() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(1);
+        eventService.setPriorityEnabled(true);
+        PostListener listener = new PostListener();
+        eventService.subscribe(listener);
+
+        eventService.post(listener.release);
+        Assert.assertTrue(listener.started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            eventService.post(new Audit());
+        }
+        //handler of normal priority is queued by priority as well, rather than run by the task of post
+        eventService.post(new Notice());
+        listener.release.countDown();
+
+        Assert.assertTrue(listener.received.await(5, TimeUnit.SECONDS));
+        synchronized (listener) {
+            int index = listener.order.indexOf("notice");
+            Assert.assertTrue("Normal priority event waited for the backlog: " + index, index >= 0 && index <= 1);
+        }
+    }
+
+    public static class Audit {
+    }
+
+    public static class Notice {
+    }
+
+    public static class Control {
+    }
+
+    public static class Listener {
+
+        private List<String>   received = new ArrayList<>();
+        private CountDownLatch started  = new CountDownLatch(1);
+        private CountDownLatch release  = new CountDownLatch(1);
+
+        @Subscribe
+        public void onBlock(CountDownLatch latch) throws InterruptedException {
+            started.countDown();
+            latch.await(5, TimeUnit.SECONDS);
+        }
+
+        @Subscribe(priority = Priority.LOW)
+        public synchronized void onAudit(Audit event) {
+            received.add("audit");
+        }
+
+        @Subscribe(priority = Priority.HIGH)
+        public synchronized void onControl(Control event) {
+            received.add("control");
+        }
+    }
+
+    public static class PostListener {
+
+        private List<String>   order    = new ArrayList<>();
+        private CountDownLatch received = new CountDownLatch(101);
+        private CountDownLatch started  = new CountDownLatch(1);
+        private CountDownLatch release  = new CountDownLatch(1);
+
+        @Subscribe
+        public void onBlock(CountDownLatch latch) throws InterruptedException {
+            started.countDown();
+            latch.await(5, TimeUnit.SECONDS);
+        }
+
+        @Subscribe(priority = Priority.LOW)
+        public synchronized void onAudit(Audit event) {
+            order.add("audit");
+            received.countDown();
+        }
+
+        @Subscribe
+        public synchronized void onNotice(Notice event) {
+            order.add("notice");
+            received.countDown();
+        }
+    }
+}
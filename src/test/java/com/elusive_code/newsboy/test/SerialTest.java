@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class SerialTest {
+
+    private int listeners = 4;
+    private int events    = 1000;
+
+    @Test
+    public void testSerial() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(8);
+        CountDownLatch latch = new CountDownLatch(listeners * events * 3);
+
+        List<Listener> subscribed = new ArrayList<>();
+        for (int i = 0; i < listeners; i++) {
+            Listener listener = new Listener(latch);
+            subscribed.add(listener);
+            eventService.subscribe(listener);
+        }
+
+        for (int i = 0; i < events; i++) {
+            eventService.publish("event " + i);
+            eventService.post(i);
+            eventService.publishOrdered("ordered " + i);
+        }
+        Assert.assertTrue("Not all listeners were notified", latch.await(10, TimeUnit.SECONDS));
+
+        for (Listener listener : subscribed) {
+            //fields are not synchronized: serial handlers should see each other's writes
+            Assert.assertEquals(events * 3, listener.count);
+            Assert.assertFalse("Serial handlers were invoked concurrently", listener.concurrent);
+        }
+    }
+
+    public static class Listener {
+
+        private CountDownLatch latch;
+        private boolean        busy;
+        private boolean        concurrent;
+        private int            count;
+
+        public Listener(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Subscribe(serial = true)
+        public void onString(String event) {
+            handle();
+        }
+
+        @Subscribe(serial = true)
+        public void onInteger(Integer event) {
+            handle();
+        }
+
+        private void handle() {
+            if (busy) concurrent = true;
+            busy = true;
+            count++;
+            Thread.yield();
+            busy = false;
+            latch.countDown();
+        }
+    }
+}
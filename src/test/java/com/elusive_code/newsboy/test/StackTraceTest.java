@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.EventNotifierTask;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@RunWith(JUnit4.class)
+public class StackTraceTest {
+
+    @Test
+    public void testLazyMessage() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        Event event = new Event();
+        List<NotificationFuture> futures = eventService.publish(event);
+        futures.get(0).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals("Event was formatted on publishing", 0, event.formatted.get());
+        EventNotifierTask task = (EventNotifierTask) futures.get(0);
+        Assert.assertEquals("Event: event", task.getEventStackTrace().getMessage());
+        Assert.assertEquals(1, event.formatted.get());
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        eventService.setStackTraceSampling(2);
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        int stored = 0;
+        int events = 1000;
+        for (int i = 0; i < events; i++) {
+            EventNotifierTask task = (EventNotifierTask) eventService.publish(new Event()).get(0);
+            if (task.getEventStackTrace() != null) stored++;
+        }
+        Assert.assertTrue("No stack traces stored", stored > 0);
+        Assert.assertTrue("All stack traces stored", stored < events);
+    }
+
+    @Test
+    public void testDepth() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService();
+        eventService.setStackTraceDepth(3);
+        ErrorListener listener = new ErrorListener();
+        eventService.subscribe(listener);
+
+        NotificationFuture future = eventService.publish(new Event()).get(0);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("Exception expected");
+        } catch (ExecutionException ex) {
+            EventNotifierTask task = (EventNotifierTask) future;
+            Assert.assertEquals(3, task.getEventStackTrace().getStackTrace().length);
+        }
+    }
+
+    public static class Event {
+
+        private AtomicInteger formatted = new AtomicInteger();
+
+        @Override
+        public String toString() {
+            formatted.incrementAndGet();
+            return "event";
+        }
+    }
+
+    public static class Listener {
+
+        @Subscribe
+        public void onEvent(Event event) {
+        }
+    }
+
+    public static class ErrorListener {
+
+        @Subscribe
+        public void onEvent(Event event) {
+            throw new IllegalStateException("some error");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class StickyTest {
+
+    @Test
+    public void testReplay() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        eventService.publishSticky("config 1");
+        eventService.publishSticky("config 2");
+        eventService.publishSticky(42);
+        eventService.publish("not sticky");
+        Assert.assertEquals("config 2", eventService.getStickyEvent(String.class));
+
+        StringListener listener = new StringListener();
+        eventService.subscribe(listener);
+        Assert.assertEquals("config 2", listener.received.poll(5, TimeUnit.SECONDS));
+
+        //listener of the parent class receives sticky events of all matching classes
+        ObjectListener objectListener = new ObjectListener();
+        eventService.subscribeStrong(objectListener);
+        Object first = objectListener.received.poll(5, TimeUnit.SECONDS);
+        Object second = objectListener.received.poll(5, TimeUnit.SECONDS);
+        Assert.assertTrue(first + ", " + second,
+                          "config 2".equals(first) && Integer.valueOf(42).equals(second)
+                          || "config 2".equals(second) && Integer.valueOf(42).equals(first));
+
+        //sticky events are also published as usual
+        eventService.publishSticky("config 3");
+        Assert.assertEquals("config 3", listener.received.poll(5, TimeUnit.SECONDS));
+        Assert.assertEquals("config 3", objectListener.received.poll(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals("config 3", eventService.removeStickyEvent(String.class));
+        StringListener late = new StringListener();
+        eventService.subscribe(late);
+        Thread.sleep(100);
+        Assert.assertTrue(late.received.isEmpty());
+        Assert.assertTrue(listener.received.isEmpty());
+        eventService.unsubscribe(objectListener);
+    }
+
+    public static class StringListener {
+
+        private BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+        @Subscribe
+        public void onEvent(String event) {
+            received.add(event);
+        }
+    }
+
+    public static class ObjectListener {
+
+        private BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+        @Subscribe
+        public void onEvent(Object event) {
+            received.add(event);
+        }
+    }
+}
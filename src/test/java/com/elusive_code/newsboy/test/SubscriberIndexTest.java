@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.EventSource;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import com.elusive_code.newsboy.SubscriberIndex;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Test classes are compiled with {@link com.elusive_code.newsboy.processor.SubscribeProcessor}
+ */
+@RunWith(JUnit4.class)
+public class SubscriberIndexTest {
+
+    @Test
+    public void testIndex() throws Exception {
+        SubscriberIndex index = loadIndex();
+        Assert.assertEquals(5, index.size());
+
+        AsyncEventService eventService = new AsyncEventService();
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = eventService.publish(41);
+        Assert.assertEquals(2, futures.size());
+        for (NotificationFuture future : futures) {
+            Object result = future.get(5, TimeUnit.SECONDS);
+            if (future.getMethod().getName().equals("primitive")) {
+                Assert.assertEquals(42, result);
+            } else {
+                Assert.assertSame(eventService, result);
+            }
+        }
+        Assert.assertEquals("static", eventService.publish("static").get(0).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testParsedSubscribe() throws Exception {
+        SubscriberIndex index = loadIndex();
+        for (int i = 0; i < index.size(); i++) {
+            String name = index.getMethod(i).getName();
+            Subscribe annotation = index.getMethod(i).getAnnotation(Subscribe.class);
+            Assert.assertEquals(name, annotation.eventType(), index.getSubscribe(i).eventType());
+            Assert.assertEquals(name, annotation.eventSourceParameter(), index.getSubscribe(i).eventSourceParameter());
+            Assert.assertEquals(name, annotation.filterMethod(), index.getSubscribe(i).filterMethod());
+            Assert.assertEquals(name, annotation.priority(), index.getSubscribe(i).priority());
+            Assert.assertEquals(name, annotation, index.getSubscribe(i));
+            Assert.assertEquals(name, index.getSubscribe(i), annotation);
+            Assert.assertEquals(name, annotation.hashCode(), index.getSubscribe(i).hashCode());
+            Assert.assertEquals(name, Subscribe.class, index.getSubscribe(i).annotationType());
+            Assert.assertNull(name, index.getFilter(i));
+            if (name.equals("source")) {
+                Assert.assertEquals(Integer.class, index.getEventType(i));
+                Assert.assertEquals(0, index.getSourceParameter(i));
+                Assert.assertEquals(-1, index.getEventParameter(i));
+            } else if (name.equals("filtered")) {
+                Assert.assertEquals(Long.class, index.getEventType(i));
+                Assert.assertNotNull(index.getFilterInvoker(i));
+            } else {
+                Assert.assertEquals(index.getMethod(i).getParameterTypes()[0], index.getEventType(i));
+                Assert.assertEquals(-1, index.getSourceParameter(i));
+                Assert.assertEquals(0, index.getEventParameter(i));
+                Assert.assertNull(name, index.getFilterInvoker(i));
+            }
+        }
+
+        AsyncEventService eventService = new AsyncEventService();
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+        Assert.assertTrue(eventService.publish(1L).isEmpty());
+        Assert.assertEquals(2L, eventService.publish(2L).get(0).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInaccessibleTypes() throws Exception {
+        //index would refer to private class, so listener is handled with reflection
+        try {
+            Class.forName(PrivateEventListener.class.getName() + SubscriberIndex.SUFFIX);
+            Assert.fail("Index isn't expected");
+        } catch (ClassNotFoundException ex) {
+            //expected
+        }
+        AsyncEventService eventService = new AsyncEventService();
+        PrivateEventListener listener = new PrivateEventListener();
+        eventService.subscribe(listener);
+        PrivateEvent event = new PrivateEvent();
+        Assert.assertSame(event, eventService.publish(event).get(0).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDirectInvocation() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService();
+        Listener listener = new Listener();
+        eventService.subscribe(listener);
+
+        try {
+            eventService.publish(new IllegalStateException()).get(0).get(5, TimeUnit.SECONDS);
+            Assert.fail("Exception expected");
+        } catch (ExecutionException ex) {
+            //fork-join may wrap exception thrown in another thread
+            Throwable error = ex.getCause();
+            while (!"some error".equals(error.getMessage())) {
+                error = error.getCause();
+            }
+            //listener is called by generated invoker, not through reflection
+            StackTraceElement caller = error.getStackTrace()[1];
+            Assert.assertTrue(caller.getClassName(),
+                              caller.getClassName().startsWith(Listener.class.getName() + SubscriberIndex.SUFFIX));
+        }
+    }
+
+    private static SubscriberIndex loadIndex() throws Exception {
+        return (SubscriberIndex) Class.forName(Listener.class.getName() + SubscriberIndex.SUFFIX)
+                                      .getDeclaredConstructor().newInstance();
+    }
+
+    private static class PrivateEvent {
+    }
+
+    public static class PrivateEventListener {
+
+        @Subscribe
+        public Object onEvent(PrivateEvent event) {
+            return event;
+        }
+    }
+
+    public static class Listener {
+
+        @Subscribe
+        public int primitive(Integer event) {
+            return event + 1;
+        }
+
+        @Subscribe(eventType = Integer.class, eventSourceParameter = 0)
+        public EventSource source(EventSource source) {
+            return source;
+        }
+
+        @Subscribe
+        public static String staticMethod(String event) {
+            return event;
+        }
+
+        @Subscribe
+        public void error(IllegalStateException event) {
+            throw new IllegalStateException("some error", event);
+        }
+
+        @Subscribe(filterMethod = "isEven")
+        public long filtered(Long event) {
+            return event;
+        }
+
+        public boolean isEven(Long event) {
+            return event % 2 == 0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RunWith(JUnit4.class)
+public class SubscriptionTest {
+
+    @Test
+    public void testSubscriptionChanges() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        Listener listener1 = new Listener();
+        Listener listener2 = new Listener();
+
+        Assert.assertEquals(0, publish(eventService, "event"));
+
+        eventService.subscribe(listener1);
+        Assert.assertEquals(1, publish(eventService, "event"));
+
+        eventService.subscribe(listener2);
+        Assert.assertEquals(2, publish(eventService, "event"));
+
+        //subscribing twice shouldn't duplicate notifications
+        eventService.subscribe(listener2);
+        Assert.assertEquals(2, publish(eventService, "event"));
+
+        eventService.unsubscribe(listener1);
+        Assert.assertEquals(1, publish(eventService, "event"));
+        Assert.assertEquals(0, publish(eventService, new Object()));
+
+        eventService.unsubscribe(listener2);
+        Assert.assertEquals(0, publish(eventService, "event"));
+
+        Assert.assertEquals(3, listener1.received);
+        Assert.assertEquals(3, listener2.received);
+    }
+
+    @Test
+    public void testInstancesOfSameClass() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        Listener[] listeners = new Listener[1000];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new Listener();
+            eventService.subscribe(listeners[i]);
+        }
+
+        //handlers of every instance are bound to it, though methods are parsed once per class
+        List<NotificationFuture> notifications = eventService.publish("event");
+        Assert.assertEquals(listeners.length, notifications.size());
+        for (NotificationFuture f : notifications) {
+            f.get();
+            Assert.assertEquals(Listener.class.getMethod("onEvent", CharSequence.class), f.getMethod());
+        }
+        for (Listener listener : listeners) {
+            Assert.assertEquals(1, listener.received);
+        }
+    }
+
+    @Test
+    public void testConcurrentPublishers() throws Exception {
+        final AsyncEventService eventService = new AsyncEventService();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] publishers = new Thread[4];
+        for (int i = 0; i < publishers.length; i++) {
+            publishers[i] = new Thread() {
+                @Override
+                public void run() {
+                    while (running.get()) {
+                        eventService.post("event");
+                    }
+                }
+            };
+            publishers[i].start();
+        }
+        try {
+            Listener[] listeners = new Listener[4];
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i] = new Listener();
+            }
+            //publishers resolve handlers while subscriptions change, stale handlers must never be cached
+            for (int i = 0; i < 1000; i++) {
+                Listener listener = listeners[i % listeners.length];
+                eventService.subscribe(listener);
+                Assert.assertEquals(1, eventService.publish("event").size());
+                eventService.unsubscribe(listener);
+                Assert.assertEquals(0, eventService.publish("event").size());
+            }
+        } finally {
+            running.set(false);
+            for (Thread publisher : publishers) {
+                publisher.join();
+            }
+        }
+    }
+
+    private int publish(AsyncEventService eventService, Object event) throws Exception {
+        List<NotificationFuture> notifications = eventService.publish(event);
+        for (NotificationFuture f : notifications) {
+            f.get();
+        }
+        return notifications.size();
+    }
+
+    public static class Listener {
+
+        private volatile int received;
+
+        @Subscribe
+        public void onEvent(CharSequence event) {
+            received++;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014. Vladislav Dolgikh
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.elusive_code.newsboy.test;
+
+import com.elusive_code.newsboy.AsyncEventService;
+import com.elusive_code.newsboy.HandlerTimeoutException;
+import com.elusive_code.newsboy.NotificationFuture;
+import com.elusive_code.newsboy.Subscribe;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@RunWith(JUnit4.class)
+public class TimeoutTest {
+
+    @Test
+    public void testReport() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService(4);
+        SlowListener listener = new SlowListener();
+        eventService.subscribe(listener);
+
+        //timeout is only reported by default
+        List<NotificationFuture> futures = eventService.publish("event");
+        Assert.assertEquals(1, futures.size());
+        Assert.assertEquals("event", futures.get(0).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService(4);
+        eventService.setFailOnTimeout(true);
+        StuckListener listener = new StuckListener();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> first = eventService.publishOrdered(1);
+        List<NotificationFuture> second = eventService.publishOrdered(2);
+        try {
+            first.get(0).get(5, TimeUnit.SECONDS);
+            Assert.fail("Exception expected");
+        } catch (ExecutionException ex) {
+            Throwable timeout = ex.getCause();
+            while (timeout != null && !(timeout instanceof HandlerTimeoutException)) {
+                timeout = timeout.getCause();
+            }
+            Assert.assertNotNull("Timeout expected", timeout);
+            boolean stuck = false;
+            for (StackTraceElement element : timeout.getStackTrace()) {
+                stuck |= element.getMethodName().equals("onEvent");
+            }
+            Assert.assertTrue("Stack of stuck handler expected", stuck);
+        }
+
+        //stuck notification doesn't block ordered delivery
+        Assert.assertTrue("Next ordered event wasn't delivered", listener.second.await(5, TimeUnit.SECONDS));
+        listener.release.countDown();
+        Assert.assertEquals(2, second.get(0).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testServiceTimeout() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService(4);
+        eventService.setHandlerTimeout(50);
+        eventService.setFailOnTimeout(true);
+        UnlimitedListener listener = new UnlimitedListener();
+        eventService.subscribe(listener);
+
+        List<NotificationFuture> futures = eventService.publish("event");
+        try {
+            futures.get(0).get(5, TimeUnit.SECONDS);
+            Assert.fail("Exception expected");
+        } catch (ExecutionException ex) {
+            //expected
+        } finally {
+            listener.release.countDown();
+        }
+    }
+
+    @Test
+    public void testIdleScan() throws Exception {
+        Logger.getLogger("com.elusive_code.newsboy").setLevel(Level.SEVERE);
+        AsyncEventService eventService = new AsyncEventService(4);
+        eventService.setFailOnTimeout(true);
+        SlowListener listener = new SlowListener();
+        eventService.subscribe(listener);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                eventService.publish("event").get(0).get(5, TimeUnit.SECONDS);
+                Assert.fail("Exception expected");
+            } catch (ExecutionException ex) {
+                //expected
+            }
+            //scan stops once nothing runs and is started again by the next notification
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        AsyncEventService eventService = new AsyncEventService(4);
+        eventService.setHandlerTimeout(1000);
+        UnlimitedListener listener = new UnlimitedListener();
+        listener.release.countDown();
+        eventService.subscribe(listener);
+        eventService.publish("event").get(0).get(5, TimeUnit.SECONDS);
+
+        eventService.shutdown();
+        Assert.assertTrue(eventService.isShutdown());
+        try {
+            eventService.publish("event");
+            Assert.fail("Exception expected");
+        } catch (RejectedExecutionException ex) {
+            //expected
+        }
+    }
+
+    public static class SlowListener {
+
+        @Subscribe(timeout = 20)
+        public String onEvent(String event) throws InterruptedException {
+            Thread.sleep(200);
+            return event;
+        }
+    }
+
+    public static class StuckListener {
+
+        private CountDownLatch release = new CountDownLatch(1);
+        private CountDownLatch second  = new CountDownLatch(1);
+
+        @Subscribe(timeout = 50)
+        public Integer onEvent(Integer event) throws InterruptedException {
+            if (event == 1) {
+                release.await();
+            } else {
+                second.countDown();
+            }
+            return event;
+        }
+    }
+
+    public static class UnlimitedListener {
+
+        private CountDownLatch release = new CountDownLatch(1);
+
+        @Subscribe
+        public void onEvent(String event) throws InterruptedException {
+            release.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -25,8 +25,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,6 +62,74 @@ public class WeakReferenceTest {
         }
     }
 
+    @Test
+    public void testExpunge() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        EventListener alive = new EventListener();
+        eventService.subscribe(alive);
+        for (int i=0; i<1000; i++) {
+            eventService.subscribe(new EventListener());
+        }
+
+        //handlers of collected listeners are removed in background without publishing anything
+        for (int i=0; i<100 && eventService.getHandlerCount() > 1; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(1, eventService.getHandlerCount());
+
+        eventService.unsubscribe(alive);
+        Assert.assertEquals(0, eventService.getHandlerCount());
+    }
+
+    @Test
+    public void testStrong() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        AtomicInteger received = new AtomicInteger();
+        for (int i=0; i<10; i++) {
+            eventService.subscribeStrong(new StrongListener(received));
+        }
+
+        //strongly subscribed listeners are not claimed by GC
+        System.gc();
+        Thread.sleep(100);
+        Assert.assertEquals(10, eventService.getHandlerCount());
+
+        for (NotificationFuture f: eventService.publish("event")) {
+            f.get();
+        }
+        Assert.assertEquals(10, received.get());
+
+        Object listener = new EventListener();
+        eventService.subscribeStrong(listener);
+        Assert.assertEquals(11, eventService.getHandlerCount());
+        //subscribing again replaces previous subscription
+        eventService.subscribe(listener);
+        Assert.assertEquals(11, eventService.getHandlerCount());
+        eventService.subscribeStrong(listener);
+        Assert.assertEquals(11, eventService.getHandlerCount());
+        eventService.unsubscribe(listener);
+        Assert.assertEquals(10, eventService.getHandlerCount());
+    }
+
+    @Test
+    public void testStrongUnsubscribe() throws Exception {
+        AsyncEventService eventService = new AsyncEventService();
+        Object listener = new StrongListener(new AtomicInteger());
+        WeakReference<Object> reference = new WeakReference<>(listener);
+        eventService.subscribeStrong(listener);
+        eventService.publish("event").get(0).get();
+
+        //dispatch table shouldn't keep handlers of unsubscribed listener until its event is published again
+        eventService.unsubscribe(listener);
+        listener = null;
+        for (int i=0; i<100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull("Unsubscribed listener is still reachable", reference.get());
+    }
+
     public int getListeners() {
         return listeners;
     }
@@ -75,4 +145,18 @@ public class WeakReferenceTest {
             Assert.fail("Event listener that should be collected be GC received event");
         }
     }
+
+    public static class StrongListener{
+
+        private AtomicInteger received;
+
+        public StrongListener(AtomicInteger received) {
+            this.received = received;
+        }
+
+        @Subscribe
+        public void onEvent(String event){
+            received.incrementAndGet();
+        }
+    }
 }